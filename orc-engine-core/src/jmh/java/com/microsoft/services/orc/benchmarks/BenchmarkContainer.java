@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.BaseOrcContainer;
+import com.microsoft.services.orc.MultipartCollectionFetcher;
+import com.microsoft.services.orc.interfaces.DependencyResolver;
+
+/**
+ * Container exposing a message collection, like a generated client.
+ */
+public class BenchmarkContainer extends BaseOrcContainer {
+
+    /**
+     * The base url used by the benchmarks.
+     */
+    public static final String URL = "https://outlook.office365.com/api/v1.0";
+
+    public BenchmarkContainer(DependencyResolver resolver) {
+        super(URL, resolver);
+    }
+
+    /**
+     * Gets messages.
+     *
+     * @return the messages
+     */
+    public MultipartCollectionFetcher<Message, MessageFetcher, MessageOperations> getMessages() {
+        return new MultipartCollectionFetcher<Message, MessageFetcher, MessageOperations>(
+                "Messages", this, Message.class, MessageOperations.class);
+    }
+}
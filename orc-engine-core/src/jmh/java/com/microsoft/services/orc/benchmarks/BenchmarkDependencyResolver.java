@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.impl.LoggerBase;
+import com.microsoft.services.orc.impl.OAuthCredentials;
+import com.microsoft.services.orc.impl.OrcURLImpl;
+import com.microsoft.services.orc.interfaces.Credentials;
+import com.microsoft.services.orc.interfaces.DependencyResolver;
+import com.microsoft.services.orc.interfaces.HttpTransport;
+import com.microsoft.services.orc.interfaces.JsonSerializer;
+import com.microsoft.services.orc.interfaces.LogLevel;
+import com.microsoft.services.orc.interfaces.Logger;
+import com.microsoft.services.orc.interfaces.OrcURL;
+import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.RequestMetrics;
+
+/**
+ * Dependency resolver wiring the benchmark serializer to a given transport.
+ * Logging is disabled so it does not show up in the measurements.
+ */
+public class BenchmarkDependencyResolver implements DependencyResolver {
+
+    private final HttpTransport mTransport;
+    private final JsonSerializer mSerializer = new BenchmarkSerializer();
+    private final LoggerBase mLogger = new LoggerBase() {
+        @Override
+        public void print(String content, LogLevel logLevel) {
+        }
+    };
+    private final Credentials mCredentials = new OAuthCredentials("benchmark-token");
+
+    /**
+     * Instantiates a new Benchmark dependency resolver.
+     *
+     * @param transport the transport
+     */
+    public BenchmarkDependencyResolver(HttpTransport transport) {
+        mTransport = transport;
+        mLogger.setEnabled(false);
+    }
+
+    @Override
+    public HttpTransport getHttpTransport() {
+        return mTransport;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return mLogger;
+    }
+
+    @Override
+    public JsonSerializer getJsonSerializer() {
+        return mSerializer;
+    }
+
+    @Override
+    public OrcURL createODataURL() {
+        return new OrcURLImpl();
+    }
+
+    @Override
+    public Request createRequest() {
+        return mTransport.createRequest();
+    }
+
+    @Override
+    public String getPlatformUserAgent(String productName) {
+        return productName + "/benchmark";
+    }
+
+    @Override
+    public Credentials getCredentials() {
+        return mCredentials;
+    }
+
+    @Override
+    public RequestMetrics getRequestMetrics() {
+        return null;
+    }
+}
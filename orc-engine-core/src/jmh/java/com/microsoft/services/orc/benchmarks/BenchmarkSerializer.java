@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.google.common.io.BaseEncoding;
+import com.microsoft.services.orc.impl.ByteArrayTypeAdapterBase;
+import com.microsoft.services.orc.impl.GsonSerializerBase;
+import com.microsoft.services.orc.interfaces.Base64Encoder;
+
+/**
+ * Serializer used by the benchmarks, with a Guava based base64 encoder.
+ */
+public class BenchmarkSerializer extends GsonSerializerBase {
+
+    @Override
+    protected ByteArrayTypeAdapterBase getByteArrayTypeAdapter() {
+        return new ByteArrayTypeAdapterBase() {
+            @Override
+            protected Base64Encoder getBase64Encoder() {
+                return new Base64Encoder() {
+                    @Override
+                    public String encode(byte[] data) {
+                        return BaseEncoding.base64().encode(data);
+                    }
+
+                    @Override
+                    public byte[] decode(String base64String) {
+                        return BaseEncoding.base64().decode(base64String);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.CalendarSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * ISO-8601 parsing and formatting, done for every date property, against the SimpleDateFormat
+ * based implementation it replaced.
+ */
+@State(Scope.Benchmark)
+public class CalendarSerializerBenchmark {
+
+    private final Calendar calendar = createCalendar();
+    private final String utcValue = "2015-03-21T14:35:07.1234567Z";
+    private final String offsetValue = "2015-03-21T14:35:07.123-08:00";
+
+    @Benchmark
+    public String serialize() {
+        return CalendarSerializer.serialize(calendar);
+    }
+
+    @Benchmark
+    public Calendar deserializeUtc() throws ParseException {
+        return CalendarSerializer.deserialize(utcValue);
+    }
+
+    @Benchmark
+    public Calendar deserializeOffset() throws ParseException {
+        return CalendarSerializer.deserialize(offsetValue);
+    }
+
+    @Benchmark
+    public String legacySerialize() {
+        return LegacyCalendarSerializer.serialize(calendar);
+    }
+
+    @Benchmark
+    public Calendar legacyDeserializeUtc() throws ParseException {
+        return LegacyCalendarSerializer.deserialize(utcValue);
+    }
+
+    private static Calendar createCalendar() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(1426948507123L);
+        return calendar;
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.ODataBaseEntity;
+
+/**
+ * Complex type used by the benchmark entity graph.
+ */
+public class EmailAddress extends ODataBaseEntity {
+
+    public EmailAddress() {
+        setODataType("#Microsoft.OutlookServices.EmailAddress");
+    }
+
+    private String Name;
+
+    private String Address;
+
+    public String getName() {
+        return this.Name;
+    }
+
+    public void setName(String value) {
+        this.Name = value;
+        valueChanged("Name", value);
+    }
+
+    public String getAddress() {
+        return this.Address;
+    }
+
+    public void setAddress(String value) {
+        this.Address = value;
+        valueChanged("Address", value);
+    }
+}
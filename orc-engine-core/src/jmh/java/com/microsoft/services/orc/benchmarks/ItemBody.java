@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.ODataBaseEntity;
+
+/**
+ * Complex type used by the benchmark entity graph.
+ */
+public class ItemBody extends ODataBaseEntity {
+
+    public ItemBody() {
+        setODataType("#Microsoft.OutlookServices.ItemBody");
+    }
+
+    private String ContentType;
+
+    private String Content;
+
+    public String getContentType() {
+        return this.ContentType;
+    }
+
+    public void setContentType(String value) {
+        this.ContentType = value;
+        valueChanged("ContentType", value);
+    }
+
+    public String getContent() {
+        return this.Content;
+    }
+
+    public void setContent(String value) {
+        this.Content = value;
+        valueChanged("Content", value);
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Copy of the SimpleDateFormat based CalendarSerializer, kept as the baseline
+ * of {@link CalendarSerializerBenchmark}.
+ */
+final class LegacyCalendarSerializer {
+
+    private LegacyCalendarSerializer() {
+    }
+
+    static Calendar deserialize(String strVal) throws ParseException {
+        boolean hasZ = strVal.indexOf('Z') != -1;
+        String s = (hasZ) ? strVal.replace("Z", "+0000") : strVal;
+        String zsuffix = (hasZ) ? "Z" : "";
+
+        String datePattern;
+        if (s.contains(".")) {
+            String milliseconds = s.substring(s.indexOf(".") + 1, s.indexOf("+"));
+            if (milliseconds.length() > 3) {
+                milliseconds = milliseconds.substring(0, 3);
+                s = s.substring(0, s.indexOf(".") + 1) + milliseconds + s.substring(s.indexOf("+"));
+            }
+
+            datePattern = "yyyy-MM-dd'T'HH:mm:ss.SSS" + zsuffix;
+        } else {
+            datePattern = "yyyy-MM-dd'T'HH:mm:ss" + zsuffix;
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat(datePattern);
+        dateFormat.setTimeZone(TimeZone.getDefault());
+
+        Date date = dateFormat.parse(s);
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return calendar;
+    }
+
+    static String serialize(Calendar src) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'.'SSS'Z'", Locale.getDefault());
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.format(src.getTime());
+    }
+}
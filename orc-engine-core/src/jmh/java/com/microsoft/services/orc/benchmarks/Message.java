@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.ODataBaseEntity;
+
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Entity shaped like the generated mail message, used by the benchmarks.
+ */
+public class Message extends ODataBaseEntity {
+
+    public Message() {
+        setODataType("#Microsoft.OutlookServices.Message");
+    }
+
+    private String Id;
+
+    private String Subject;
+
+    private ItemBody Body;
+
+    private Recipient From;
+
+    private List<Recipient> ToRecipients;
+
+    private List<Recipient> CcRecipients;
+
+    private List<String> Categories;
+
+    private Calendar DateTimeCreated;
+
+    private Calendar DateTimeSent;
+
+    private Boolean IsRead;
+
+    private Boolean HasAttachments;
+
+    private Integer Importance;
+
+    private byte[] ChangeKey;
+
+    public String getId() {
+        return this.Id;
+    }
+
+    public void setId(String value) {
+        this.Id = value;
+        valueChanged("Id", value);
+    }
+
+    public String getSubject() {
+        return this.Subject;
+    }
+
+    public void setSubject(String value) {
+        this.Subject = value;
+        valueChanged("Subject", value);
+    }
+
+    public ItemBody getBody() {
+        return this.Body;
+    }
+
+    public void setBody(ItemBody value) {
+        this.Body = value;
+        valueChanged("Body", value);
+    }
+
+    public Recipient getFrom() {
+        return this.From;
+    }
+
+    public void setFrom(Recipient value) {
+        this.From = value;
+        valueChanged("From", value);
+    }
+
+    public List<Recipient> getToRecipients() {
+        return this.ToRecipients;
+    }
+
+    public void setToRecipients(List<Recipient> value) {
+        this.ToRecipients = value;
+        valueChanged("ToRecipients", value);
+    }
+
+    public List<Recipient> getCcRecipients() {
+        return this.CcRecipients;
+    }
+
+    public void setCcRecipients(List<Recipient> value) {
+        this.CcRecipients = value;
+        valueChanged("CcRecipients", value);
+    }
+
+    public List<String> getCategories() {
+        return this.Categories;
+    }
+
+    public void setCategories(List<String> value) {
+        this.Categories = value;
+        valueChanged("Categories", value);
+    }
+
+    public Calendar getDateTimeCreated() {
+        return this.DateTimeCreated;
+    }
+
+    public void setDateTimeCreated(Calendar value) {
+        this.DateTimeCreated = value;
+        valueChanged("DateTimeCreated", value);
+    }
+
+    public Calendar getDateTimeSent() {
+        return this.DateTimeSent;
+    }
+
+    public void setDateTimeSent(Calendar value) {
+        this.DateTimeSent = value;
+        valueChanged("DateTimeSent", value);
+    }
+
+    public Boolean getIsRead() {
+        return this.IsRead;
+    }
+
+    public void setIsRead(Boolean value) {
+        this.IsRead = value;
+        valueChanged("IsRead", value);
+    }
+
+    public Boolean getHasAttachments() {
+        return this.HasAttachments;
+    }
+
+    public void setHasAttachments(Boolean value) {
+        this.HasAttachments = value;
+        valueChanged("HasAttachments", value);
+    }
+
+    public Integer getImportance() {
+        return this.Importance;
+    }
+
+    public void setImportance(Integer value) {
+        this.Importance = value;
+        valueChanged("Importance", value);
+    }
+
+    public byte[] getChangeKey() {
+        return this.ChangeKey;
+    }
+
+    public void setChangeKey(byte[] value) {
+        this.ChangeKey = value;
+        valueChanged("ChangeKey", value);
+    }
+}
@@ -0,0 +1,19 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.OrcEntityFetcher;
+import com.microsoft.services.orc.OrcExecutable;
+
+/**
+ * Entity fetcher for {@link Message}. The collection fetcher instantiates it by name from getById.
+ */
+public class MessageFetcher extends OrcEntityFetcher<Message, MessageOperations> {
+
+    public MessageFetcher(String urlComponent, OrcExecutable parent) {
+        super(urlComponent, parent, Message.class, MessageOperations.class);
+    }
+}
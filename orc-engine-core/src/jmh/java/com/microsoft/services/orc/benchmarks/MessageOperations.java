@@ -0,0 +1,19 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.OrcExecutable;
+import com.microsoft.services.orc.OrcOperations;
+
+/**
+ * Operations for {@link Message}, required by the fetchers.
+ */
+public class MessageOperations extends OrcOperations {
+
+    public MessageOperations(String urlComponent, OrcExecutable parent) {
+        super(urlComponent, parent);
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.MultiPartElement;
+import com.microsoft.services.orc.MultipartCollectionFetcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Multipart body assembly in MultipartCollectionFetcher.add, against a stub transport.
+ */
+@State(Scope.Benchmark)
+public class MultipartBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int partSize;
+
+    private MultipartCollectionFetcher<Message, MessageFetcher, MessageOperations> messages;
+    private List<MultiPartElement> parts;
+
+    @Setup
+    public void setUp() {
+        BenchmarkContainer container = new BenchmarkContainer(
+                new BenchmarkDependencyResolver(new StubHttpTransport(201, new byte[0])));
+        messages = container.getMessages();
+
+        Random random = new Random(42);
+        parts = new ArrayList<MultiPartElement>();
+        parts.add(new MultiPartElement("Presentation", "<html><body>Notes</body></html>"));
+        for (int i = 0; i < 3; i++) {
+            byte[] content = new byte[partSize];
+            random.nextBytes(content);
+            parts.add(new MultiPartElement("Attachment" + i, "application/octet-stream", content));
+        }
+    }
+
+    @Benchmark
+    public Void add() throws Exception {
+        return messages.add(parts).get();
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.Constants;
+import com.microsoft.services.orc.interfaces.JsonSerializer;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Builds the entity graphs and JSON payloads shared by the benchmarks.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * Creates a message with nested complex types and collections, similar to a real mail item.
+     *
+     * @param index the index used to make the values unique
+     * @return the message
+     */
+    static Message createMessage(int index) {
+        Message message = new Message();
+        message.setId("AAMkAGI2THVSAAA=" + index);
+        message.setSubject("Quarterly planning review #" + index + " - agenda & notes");
+
+        ItemBody body = new ItemBody();
+        body.setContentType("HTML");
+        StringBuilder content = new StringBuilder("<html><body>");
+        for (int i = 0; i < 20; i++) {
+            content.append("<p>Paragraph ").append(i).append(" of the message body with some text.</p>");
+        }
+        content.append("</body></html>");
+        body.setContent(content.toString());
+        message.setBody(body);
+
+        message.setFrom(createRecipient("Adele Vance", "adelev@contoso.com"));
+
+        List<Recipient> to = new ArrayList<Recipient>();
+        for (int i = 0; i < 5; i++) {
+            to.add(createRecipient("Recipient " + i, "recipient" + i + "@contoso.com"));
+        }
+        message.setToRecipients(to);
+
+        List<Recipient> cc = new ArrayList<Recipient>();
+        for (int i = 0; i < 2; i++) {
+            cc.add(createRecipient("Cc " + i, "cc" + i + "@contoso.com"));
+        }
+        message.setCcRecipients(cc);
+
+        List<String> categories = new ArrayList<String>();
+        categories.add("Planning");
+        categories.add("Finance");
+        message.setCategories(categories);
+
+        Calendar created = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        created.setTimeInMillis(1420070400000L + index * 60000L);
+        message.setDateTimeCreated(created);
+        message.setDateTimeSent(created);
+
+        message.setIsRead(index % 2 == 0);
+        message.setHasAttachments(false);
+        message.setImportance(1);
+        message.setChangeKey(("CQAAABYAAAB" + index).getBytes(Constants.UTF8));
+
+        return message;
+    }
+
+    /**
+     * Creates the JSON payload of a collection read, as returned by the service.
+     *
+     * @param serializer the serializer
+     * @param count the number of messages
+     * @return the payload
+     */
+    static String createCollectionPayload(JsonSerializer serializer, int count) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"@odata.context\":\"").append(BenchmarkContainer.URL).append("/$metadata#Messages\",\"value\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(serializer.serialize(createMessage(i)));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static Recipient createRecipient(String name, String address) {
+        EmailAddress emailAddress = new EmailAddress();
+        emailAddress.setName(name);
+        emailAddress.setAddress(address);
+
+        Recipient recipient = new Recipient();
+        recipient.setEmailAddress(emailAddress);
+        return recipient;
+    }
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.Helpers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Helpers.urlEncode against the encoder it replaced, on the kinds of values found in requests.
+ */
+@State(Scope.Benchmark)
+public class PercentEncodeBenchmark {
+
+    @Param({"unreserved", "ascii", "unicode"})
+    public String input;
+
+    private String value;
+
+    @Setup
+    public void setUp() {
+        if ("unreserved".equals(input)) {
+            value = "AAMkAGI2THVSAAA=";
+        } else if ("ascii".equals(input)) {
+            value = "Subject eq 'Quarterly review' and IsRead eq false";
+        } else {
+            value = "Subject eq 'R\u00e9union d\u2019\u00e9quipe / \u4f1a\u8bae \ud83d\udcc5'";
+        }
+    }
+
+    @Benchmark
+    public String current() {
+        return Helpers.urlEncode(value);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return LegacyPercentEncoder.urlEncode(value);
+    }
+}
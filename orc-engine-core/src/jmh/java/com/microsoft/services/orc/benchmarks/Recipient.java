@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.ODataBaseEntity;
+
+/**
+ * Complex type used by the benchmark entity graph.
+ */
+public class Recipient extends ODataBaseEntity {
+
+    public Recipient() {
+        setODataType("#Microsoft.OutlookServices.Recipient");
+    }
+
+    private EmailAddress EmailAddress;
+
+    public EmailAddress getEmailAddress() {
+        return this.EmailAddress;
+    }
+
+    public void setEmailAddress(EmailAddress value) {
+        this.EmailAddress = value;
+        valueChanged("EmailAddress", value);
+    }
+}
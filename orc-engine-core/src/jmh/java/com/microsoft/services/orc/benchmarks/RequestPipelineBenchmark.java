@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Full request round trip through the fetcher chain and BaseOrcContainer.oDataExecute,
+ * against an in-process transport. Covers URL building, headers, credentials, response
+ * handling and deserialization, without any network time.
+ */
+@State(Scope.Benchmark)
+public class RequestPipelineBenchmark {
+
+    @Param({"1", "50"})
+    public int count;
+
+    private BenchmarkContainer entityContainer;
+    private BenchmarkContainer collectionContainer;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSerializer serializer = new BenchmarkSerializer();
+
+        byte[] entityPayload = serializer.serialize(Payloads.createMessage(0)).getBytes(Constants.UTF8);
+        entityContainer = new BenchmarkContainer(
+                new BenchmarkDependencyResolver(new StubHttpTransport(200, entityPayload)));
+
+        byte[] collectionPayload = Payloads.createCollectionPayload(serializer, count).getBytes(Constants.UTF8);
+        collectionContainer = new BenchmarkContainer(
+                new BenchmarkDependencyResolver(new StubHttpTransport(200, collectionPayload)));
+    }
+
+    @Benchmark
+    public Message readEntity() throws Exception {
+        return entityContainer.getMessages().getById("AAMkAGI2THVSAAA=").select("Subject,From").read().get();
+    }
+
+    @Benchmark
+    public List<Message> readCollection() throws Exception {
+        return collectionContainer.getMessages().top(count).orderBy("DateTimeCreated desc").read().get();
+    }
+
+    @Benchmark
+    public String addEntity() throws Exception {
+        return entityContainer.getMessages().add(Payloads.createMessage(1)).get().getId();
+    }
+}
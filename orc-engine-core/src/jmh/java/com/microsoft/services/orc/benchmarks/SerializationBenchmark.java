@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Serialization and deserialization of realistic entity graphs through GsonSerializerBase.
+ */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"1", "100"})
+    public int count;
+
+    @Param({"true", "false"})
+    public boolean parentReferences;
+
+    private BenchmarkSerializer serializer;
+    private Message message;
+    private String entityPayload;
+    private String collectionPayload;
+
+    @Setup
+    public void setUp() {
+        serializer = new BenchmarkSerializer();
+        serializer.setParentReferencesEnabled(parentReferences);
+        message = Payloads.createMessage(0);
+        entityPayload = serializer.serialize(message);
+        collectionPayload = Payloads.createCollectionPayload(serializer, count);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return serializer.serialize(message);
+    }
+
+    @Benchmark
+    public Message deserialize() {
+        return serializer.deserialize(entityPayload, Message.class);
+    }
+
+    @Benchmark
+    public List<Message> deserializeList() {
+        return serializer.deserializeList(collectionPayload, Message.class);
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.microsoft.services.orc.Constants;
+import com.microsoft.services.orc.impl.http.RequestImpl;
+import com.microsoft.services.orc.impl.http.ResponseImpl;
+import com.microsoft.services.orc.interfaces.HttpTransport;
+import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process transport that answers every request with the same canned response,
+ * so the benchmarks measure the library and not the network.
+ */
+public class StubHttpTransport implements HttpTransport {
+
+    private final int mStatus;
+    private final byte[] mContent;
+    private final Map<String, List<String>> mHeaders = new HashMap<String, List<String>>();
+
+    /**
+     * Instantiates a new Stub http transport.
+     *
+     * @param status the status returned for every request
+     * @param content the content returned for every request
+     */
+    public StubHttpTransport(int status, byte[] content) {
+        mStatus = status;
+        mContent = content;
+
+        List<String> contentType = new ArrayList<String>();
+        contentType.add(Constants.JSON_CONTENT_TYPE);
+        mHeaders.put(Constants.CONTENT_TYPE_HEADER, contentType);
+
+        List<String> contentLength = new ArrayList<String>();
+        contentLength.add(String.valueOf(content.length));
+        mHeaders.put(Constants.CONTENT_LENGTH_HEADER, contentLength);
+    }
+
+    @Override
+    public Request createRequest() {
+        return new RequestImpl();
+    }
+
+    @Override
+    public ListenableFuture<Response> execute(Request request) {
+        if (request.getStreamedContent() != null) {
+            // the request body is read as a real transport would send it
+            try {
+                InputStream body = request.getStreamedContent();
+                try {
+                    ByteStreams.copy(body, ByteStreams.nullOutputStream());
+                } finally {
+                    body.close();
+                }
+            } catch (IOException e) {
+                return Futures.immediateFailedFuture(e);
+            }
+        }
+
+        InputStream stream = new ByteArrayInputStream(mContent);
+        Response response = new ResponseImpl(stream, mStatus, mHeaders, stream);
+        return Futures.immediateFuture(response);
+    }
+}
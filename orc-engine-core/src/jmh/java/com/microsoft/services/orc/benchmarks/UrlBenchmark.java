@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.benchmarks;
+
+import com.microsoft.services.orc.Helpers;
+import com.microsoft.services.orc.impl.OrcURLImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * URL building and encoding, done for every request.
+ */
+@State(Scope.Benchmark)
+public class UrlBenchmark {
+
+    private static final String[] PATH = {
+            "Me", "Folders('Inbox')", "ChildFolders('AAMkADRmMDExYzAx')", "Messages('AAMkAGI2THVSAAA=')",
+            "Attachments", "Microsoft.OutlookServices.FileAttachment"
+    };
+
+    private final String asciiValue = "ReceivedDateTime desc";
+    private final String unicodeValue = "Subject eq 'R\u00e9union d\u2019\u00e9quipe / \u4f1a\u8bae'";
+    private final String unreservedValue = "AAMkAGI2THVSAAA";
+
+    @Benchmark
+    public String buildUrl() {
+        OrcURLImpl url = new OrcURLImpl();
+        for (int i = PATH.length - 1; i >= 0; i--) {
+            url.prependPathComponent(PATH[i]);
+        }
+
+        url.setBaseUrl(BenchmarkContainer.URL);
+        url.addQueryStringParameter("$top", "50");
+        url.addQueryStringParameter("$skip", "100");
+        url.addQueryStringParameter("$select", "Subject,From,ReceivedDateTime");
+        url.addQueryStringParameter("$orderby", "ReceivedDateTime desc");
+        url.addQueryStringParameter("$filter", "IsRead eq false");
+        return url.toString();
+    }
+
+    @Benchmark
+    public String urlEncodeAscii() {
+        return Helpers.urlEncode(asciiValue);
+    }
+
+    @Benchmark
+    public String urlEncodeUnicode() {
+        return Helpers.urlEncode(unicodeValue);
+    }
+
+    @Benchmark
+    public String urlEncodeUnreserved() {
+        return Helpers.urlEncode(unreservedValue);
+    }
+}
@@ -9,15 +9,28 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.impl.DeflateContentCodec;
+import com.microsoft.services.orc.impl.GzipContentCodec;
+import com.microsoft.services.orc.interfaces.ContentCodec;
 import com.microsoft.services.orc.interfaces.Credentials;
 import com.microsoft.services.orc.interfaces.DependencyResolver;
 import com.microsoft.services.orc.interfaces.HttpTransport;
+import com.microsoft.services.orc.interfaces.HttpVerb;
 import com.microsoft.services.orc.interfaces.LogLevel;
 import com.microsoft.services.orc.interfaces.Logger;
 import com.microsoft.services.orc.interfaces.OrcResponse;
 import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.RequestMetrics;
+import com.microsoft.services.orc.interfaces.RequestPhase;
 import com.microsoft.services.orc.interfaces.Response;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -27,28 +40,90 @@ public abstract class BaseOrcContainer extends OrcExecutable {
 
     private String url;
     private DependencyResolver resolver;
+    // the open batch of each thread; a batch executed from another thread is dropped by its
+    // thread on its next request, and with the thread if it has none
+    private final ThreadLocal<OrcBatch> openBatch = new ThreadLocal<OrcBatch>();
+
+    // the accepted content codings by name, replaced as a whole
+    private volatile Map<String, ContentCodec> contentCodecs;
+    private volatile String acceptEncoding;
+    private volatile ContentCodec requestCodec = null;
+    private volatile int requestCompressionThreshold = 0;
 
     public BaseOrcContainer(String url, DependencyResolver resolver) {
         this.url = url;
         this.resolver = resolver;
+
+        setContentCodecs(new GzipContentCodec(), new DeflateContentCodec());
+    }
+
+    /**
+     * Sets the content codings accepted for the responses, gzip and deflate by default.
+     * A response with one of these codings is decoded as it is read.
+     *
+     * @param codecs the codecs, none to not ask for encoded responses
+     */
+    public void setContentCodecs(ContentCodec... codecs) {
+        Map<String, ContentCodec> byName = new LinkedHashMap<String, ContentCodec>();
+        StringBuilder sb = new StringBuilder();
+
+        for (ContentCodec codec : codecs) {
+            String name = codec.getName().toLowerCase(Locale.US);
+            if (byName.put(name, codec) == null) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(name);
+            }
+        }
+
+        contentCodecs = Collections.unmodifiableMap(byName);
+        acceptEncoding = sb.length() > 0 ? sb.toString() : null;
+    }
+
+    /**
+     * Sets the compression of the request content. The content of POST, PATCH and PUT requests
+     * of at least the minimum size is encoded with the codec, the service must accept the coding.
+     * Disabled by default.
+     *
+     * @param codec the codec, null to disable the compression
+     * @param minimumSize the minimum content size in bytes
+     */
+    public void setRequestCompression(ContentCodec codec, int minimumSize) {
+        if (minimumSize < 0) {
+            throw new IllegalArgumentException("minimumSize");
+        }
+
+        requestCompressionThreshold = minimumSize;
+        requestCodec = codec;
     }
 
     @Override
     protected ListenableFuture<OrcResponse> oDataExecute(final Request request) {
         final SettableFuture<OrcResponse> result = SettableFuture.create();
         final Logger logger = resolver.getLogger();
+        final RequestMetrics metrics = resolver.getRequestMetrics();
 
         try {
+            final String metricsKey;
+            if (metrics != null) {
+                metricsKey = getMetricsKey(request.getUrl().getPathComponents());
+                request.addOption(Request.METRICS_KEY, metricsKey);
+            } else {
+                metricsKey = null;
+            }
+
             request.getUrl().setBaseUrl(this.url);
-            String fullUrl = request.getUrl().toString();
 
-            String executionInfo = String.format("URL: %s - HTTP VERB: %s", fullUrl, request.getVerb());
-            logger.log("Start preparing OData execution for " + executionInfo, LogLevel.INFO);
+            if (logger.isEnabled(LogLevel.INFO)) {
+                logger.log(LogLevel.INFO, "Start preparing OData execution for URL: %s - HTTP VERB: %s",
+                        request.getUrl(), request.getVerb());
 
-            if (request.getContent() != null) {
-                logger.log("With " + request.getContent().length + " bytes of payload", LogLevel.INFO);
-            } else if (request.getStreamedContent() != null) {
-                logger.log("With stream of bytes for payload", LogLevel.INFO);
+                if (request.getContent() != null) {
+                    logger.log(LogLevel.INFO, "With %d bytes of payload", request.getContent().length);
+                } else if (request.getStreamedContent() != null) {
+                    logger.log("With stream of bytes for payload", LogLevel.INFO);
+                }
             }
 
             HttpTransport httpTransport = resolver.getHttpTransport();
@@ -59,10 +134,26 @@ public abstract class BaseOrcContainer extends OrcExecutable {
             if (!request.getHeaders().containsKey(Constants.CONTENT_TYPE_HEADER)) {
                 request.addHeader(Constants.CONTENT_TYPE_HEADER, Constants.JSON_CONTENT_TYPE);
             }
-            request.addHeader(Constants.ACCEPT_HEADER, Constants.JSON_CONTENT_TYPE);
+            if (!request.getHeaders().containsKey(Constants.ACCEPT_HEADER)) {
+                request.addHeader(Constants.ACCEPT_HEADER, Constants.JSON_CONTENT_TYPE);
+            }
             request.addHeader(Constants.ODATA_VERSION_HEADER, Constants.ODATA_VERSION);
             request.addHeader(Constants.ODATA_MAXVERSION_HEADER, Constants.ODATA_MAXVERSION);
 
+            OrcBatch batch = getOpenBatch();
+
+            // the parts of a batch are encoded with the batch, not on their own
+            if (batch == null) {
+                String accepted = acceptEncoding;
+                if (accepted != null && !request.getHeaders().containsKey(Constants.ACCEPT_ENCODING_HEADER)
+                        && !request.getHeaders().containsKey(Constants.RANGE_HEADER)) {
+                    // ranges are of the encoded content, they are asked for without coding
+                    request.addHeader(Constants.ACCEPT_ENCODING_HEADER, accepted);
+                }
+
+                compressContent(request, metrics, metricsKey);
+            }
+
             if (request.getHeaders() != null) {
                 for (String key : request.getHeaders().keySet()) {
                     request.addHeader(key, request.getHeaders().get(key));
@@ -82,51 +173,112 @@ public abstract class BaseOrcContainer extends OrcExecutable {
             }
 
 
-            logger.log("Request Headers: ", LogLevel.VERBOSE);
-            for (String key : request.getHeaders().keySet()) {
-                logger.log(key + " : " + request.getHeaders().get(key), LogLevel.VERBOSE);
+            if (logger.isEnabled(LogLevel.VERBOSE)) {
+                logger.log("Request Headers: ", LogLevel.VERBOSE);
+                for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                    logger.log(LogLevel.VERBOSE, "%s : %s", header.getKey(), header.getValue());
+                }
             }
 
-            final ListenableFuture<Response> future = httpTransport.execute(request);
-            logger.log("OData request executed", LogLevel.INFO);
+            final long sentAt = System.nanoTime();
+            ListenableFuture<Response> batched = batch != null ? batch.add(request) : null;
+            final ListenableFuture<Response> future;
+            if (batched != null) {
+                future = batched;
+                logger.log("OData request added to batch", LogLevel.INFO);
+            } else {
+                future = httpTransport.execute(request);
+                logger.log("OData request executed", LogLevel.INFO);
+            }
 
+            if (metrics != null) {
+                metrics.requestStarted(metricsKey);
+                if (request.getContent() != null) {
+                    metrics.recordRequestSize(metricsKey, request.getContent().length);
+                } else if (request.getStreamedContent() != null && request.getStreamedContentSize() >= 0) {
+                    metrics.recordRequestSize(metricsKey, request.getStreamedContentSize());
+                }
+            }
 
             Futures.addCallback(future, new FutureCallback<Response>() {
 
                 @Override
                 public void onSuccess(Response response) {
                     boolean readBytes = true;
-                    if (request.getOptions().get(Request.MUST_STREAM_RESPONSE_CONTENT) != null) {
+                    Map<String, String> options = request.getOptions();
+                    if (options.get(Request.MUST_STREAM_RESPONSE_CONTENT) != null
+                            || options.get(Request.DEFER_RESPONSE_CONTENT) != null) {
                         readBytes = false;
                     }
 
-                    OrcResponse orcResponse = new OrcResponseImpl(response);
+                    OrcResponseImpl orcResponse = new OrcResponseImpl(response);
+                    orcResponse.setMetricsKey(metricsKey);
+                    orcResponse.setRequestMetrics(metrics);
 
+                    int status = 0;
                     try {
                         logger.log("OData response received", LogLevel.INFO);
 
-                        int status = response.getStatus();
-                        logger.log("Response Status Code: " + status, LogLevel.INFO);
+                        status = response.getStatus();
+                        if (logger.isEnabled(LogLevel.INFO)) {
+                            logger.log(LogLevel.INFO, "Response Status Code: %d", status);
+                        }
+
+                        if (metrics != null) {
+                            metrics.recordTiming(metricsKey, RequestPhase.TIME_TO_FIRST_BYTE, System.nanoTime() - sentAt);
+                        }
+
+                        ContentCodec codec = getResponseCodec(request, orcResponse);
+                        if (codec != null) {
+                            if (logger.isEnabled(LogLevel.VERBOSE)) {
+                                logger.log(LogLevel.VERBOSE, "Decoding %s response content", codec.getName());
+                            }
+                            orcResponse.decodeContent(codec);
+                        }
 
                         if (readBytes) {
                             logger.log("Reading response data...", LogLevel.VERBOSE);
+                            long readStart = System.nanoTime();
                             byte[] data = orcResponse.getPayload();
-                            logger.log(data.length + " bytes read from response", LogLevel.VERBOSE);
+                            if (logger.isEnabled(LogLevel.VERBOSE)) {
+                                logger.log(LogLevel.VERBOSE, "%d bytes read from response", data.length);
+                            }
+
+                            if (metrics != null) {
+                                metrics.recordTiming(metricsKey, RequestPhase.BODY_READ, System.nanoTime() - readStart);
+                                if (orcResponse.isContentDecoded()) {
+                                    long encodedBytes = orcResponse.getEncodedBytesRead();
+                                    metrics.recordResponseSize(metricsKey, encodedBytes);
+                                    metrics.recordCompression(metricsKey, data.length, encodedBytes);
+                                } else {
+                                    metrics.recordResponseSize(metricsKey, data.length);
+                                }
+                            }
 
                             try {
                                 logger.log("Closing response", LogLevel.VERBOSE);
                                 response.close();
                             } catch (Throwable t) {
-                                logger.log("Error closing response: " + t.toString(), LogLevel.ERROR);
+                                logger.log(LogLevel.ERROR, "Error closing response: %s", t);
                                 result.setException(t);
                                 return;
                             }
 
+                        } else if (metrics != null && orcResponse.getContentLength() >= 0) {
+                            // the content is read by the caller, report the announced size
+                            metrics.recordResponseSize(metricsKey, orcResponse.getContentLength());
                         }
 
                         if (status < 200 || status > 299) {
                             logger.log("Invalid status code. Processing response content as String", LogLevel.VERBOSE);
                             String responseData = new String(orcResponse.getPayload(), Constants.UTF8_NAME);
+                            if (!readBytes) {
+                                // the caller never gets the stream of a failed response
+                                try {
+                                    response.close();
+                                } catch (Throwable ignored) {
+                                }
+                            }
                             String message = "Response status: " + response.getStatus() + "\n" + "Response content: " + responseData;
                             logger.log(message, LogLevel.ERROR);
                             result.setException(new OrcException(orcResponse, message));
@@ -134,13 +286,20 @@ public abstract class BaseOrcContainer extends OrcExecutable {
                         }
                         result.set(orcResponse);
                     } catch (Throwable t) {
-                        logger.log("Unexpected error: " + t.toString(), LogLevel.ERROR);
+                        logger.log(LogLevel.ERROR, "Unexpected error: %s", t);
                         result.setException(new OrcException(orcResponse, t));
+                    } finally {
+                        if (metrics != null) {
+                            metrics.requestCompleted(metricsKey, status, System.nanoTime() - sentAt);
+                        }
                     }
                 }
 
                 @Override
                 public void onFailure(Throwable throwable) {
+                    if (metrics != null) {
+                        metrics.requestCompleted(metricsKey, 0, System.nanoTime() - sentAt);
+                    }
                     result.setException(throwable);
                 }
             });
@@ -151,6 +310,121 @@ public abstract class BaseOrcContainer extends OrcExecutable {
 
     }
 
+    /**
+     * Encodes the content of a request with the request codec, when it is large enough
+     * and the encoded content is smaller.
+     */
+    private void compressContent(Request request, RequestMetrics metrics, String metricsKey) throws IOException {
+        ContentCodec codec = requestCodec;
+        byte[] content = request.getContent();
+        HttpVerb verb = request.getVerb();
+
+        if (codec == null || content == null || content.length < requestCompressionThreshold
+                || (verb != HttpVerb.POST && verb != HttpVerb.PATCH && verb != HttpVerb.PUT)
+                || request.getHeaders().containsKey(Constants.CONTENT_ENCODING_HEADER)) {
+            return;
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(content.length / 2 + 64);
+        OutputStream stream = codec.encode(encoded);
+        stream.write(content);
+        stream.close();
+
+        if (encoded.size() >= content.length) {
+            return;
+        }
+
+        request.setContent(encoded.toByteArray());
+        request.addHeader(Constants.CONTENT_ENCODING_HEADER, codec.getName());
+
+        if (metrics != null) {
+            metrics.recordCompression(metricsKey, content.length, encoded.size());
+        }
+    }
+
+    /**
+     * Gets the codec of the Content-Encoding of a response.
+     *
+     * @return the codec, or null if the content is not encoded, is empty or the coding is not accepted
+     */
+    private ContentCodec getResponseCodec(Request request, OrcResponseImpl orcResponse) {
+        int status = orcResponse.getResponse().getStatus();
+        if (request.getVerb() == HttpVerb.HEAD || status == 204 || status == 304 || orcResponse.getContentLength() == 0) {
+            return null;
+        }
+
+        String contentEncoding = Helpers.getHeaderValue(orcResponse.getResponse(), Constants.CONTENT_ENCODING_HEADER);
+        if (contentEncoding == null) {
+            return null;
+        }
+
+        return contentCodecs.get(contentEncoding.trim().toLowerCase(Locale.US));
+    }
+
+    /**
+     * Builds the key a request is reported under from its path components,
+     * without the entity ids, e.g. Me/Messages('id')/Attachments becomes Me/Messages/Attachments.
+     *
+     * @param pathComponents the path components
+     * @return the key
+     */
+    private static String getMetricsKey(List<String> pathComponents) {
+        StringBuilder sb = new StringBuilder();
+        for (String component : pathComponents) {
+            if (component == null || component.length() == 0) {
+                continue;
+            }
+
+            int selector = component.indexOf('(');
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(component, 0, selector == -1 ? component.length() : selector);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Starts a batch on the calling thread. Until {@link OrcBatch#execute()} or {@link OrcBatch#cancel()}
+     * is called, the requests issued from this thread through this container are captured by the batch
+     * instead of being sent.
+     *
+     * @return the batch
+     */
+    public OrcBatch beginBatch() {
+        if (getOpenBatch() != null) {
+            throw new IllegalStateException("A batch is already open on this thread");
+        }
+
+        OrcBatch batch = new OrcBatch(this);
+        openBatch.set(batch);
+        return batch;
+    }
+
+    /**
+     * Stops capturing requests for the given batch, if it is open on the calling thread.
+     * On other threads it is dropped by {@link #getOpenBatch()}, as it is executed.
+     *
+     * @param batch the batch
+     */
+    void endBatch(OrcBatch batch) {
+        if (openBatch.get() == batch) {
+            openBatch.remove();
+        }
+    }
+
+    private OrcBatch getOpenBatch() {
+        OrcBatch batch = openBatch.get();
+        if (batch != null && batch.isExecuted()) {
+            // executed but not ended yet, the requests are sent on their own
+            openBatch.remove();
+            return null;
+        }
+
+        return batch;
+    }
+
     /**
      * Generate parameters payload.
      *
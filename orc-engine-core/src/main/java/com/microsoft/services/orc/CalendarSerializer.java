@@ -1,60 +1,289 @@
 package com.microsoft.services.orc;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Locale;
+import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
+/**
+ * Reads and writes ISO-8601 dates, as used by OData.
+ * Dates are parsed and formatted by hand: no formatter is created per value,
+ * and the methods are safe to call from any thread.
+ */
 public class CalendarSerializer {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final Date PURE_GREGORIAN = new Date(Long.MIN_VALUE);
+
+    // days from 0000-03-01 to 1970-01-01
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_400_YEARS = 146097;
+
     /**
-     * Deserializes an ISO-8601 formatted date
+     * Deserializes an ISO-8601 formatted date, e.g. 2015-03-21T14:35:07.1234567Z.
+     * The offset can be Z, +hh:mm, +hhmm or +hh. Without offset, the date is in the default time zone.
+     * Any number of fraction digits is accepted, the value is truncated to milliseconds.
+     *
      * @param strVal the str val
-     * @return the calendar
+     * @return the calendar, in the default time zone
      * @throws java.text.ParseException the parse exception
      */
     public static Calendar deserialize(String strVal) throws ParseException {
-        // Change Z to +0000 to adapt the string to a format
-        // that can be parsed in Java
-        boolean hasZ = strVal.indexOf('Z') != -1;
-        String s = (hasZ) ? strVal.replace("Z", "+0000") : strVal;
-        String zsuffix = (hasZ) ? "Z" : "";
-
-        // Parse the well-formatted date string
-        String datePattern;
-        if(s.contains(".")){
-            //SimpleDateFormat only supports 3 milliseconds
-            String milliseconds = s.substring(s.indexOf(".") + 1, s.indexOf("+"));
-            if(milliseconds.length() >3) {
-                milliseconds = milliseconds.substring(0, 3);
-                s = s.substring(0, s.indexOf(".") + 1) + milliseconds + s.substring(s.indexOf("+"));
+        if (strVal == null) {
+            throw new ParseException("Null date", 0);
+        }
+
+        String s = strVal.trim();
+        int length = s.length();
+        int[] pos = new int[1];
+
+        int year = readNumber(s, pos, 4, 4);
+        expect(s, pos, '-');
+        int month = readNumber(s, pos, 2, 2);
+        expect(s, pos, '-');
+        int day = readNumber(s, pos, 2, 2);
+
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+
+        if (pos[0] < length && isTimeSeparator(s.charAt(pos[0]))) {
+            pos[0]++;
+            hour = readNumber(s, pos, 2, 2);
+            expect(s, pos, ':');
+            minute = readNumber(s, pos, 2, 2);
+
+            if (pos[0] < length && s.charAt(pos[0]) == ':') {
+                pos[0]++;
+                second = readNumber(s, pos, 2, 2);
+
+                if (pos[0] < length && (s.charAt(pos[0]) == '.' || s.charAt(pos[0]) == ',')) {
+                    pos[0]++;
+                    millis = readFraction(s, pos);
+                }
             }
+        }
 
-            datePattern = "yyyy-MM-dd'T'HH:mm:ss.SSS" + zsuffix;
-        } else {
-            datePattern = "yyyy-MM-dd'T'HH:mm:ss" + zsuffix;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 60) {
+            throw new ParseException("Invalid date: " + strVal, 0);
         }
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat(datePattern);
-        dateFormat.setTimeZone(TimeZone.getDefault());
+        long localMillis = toEpochDay(year, month, day) * MILLIS_PER_DAY
+                + hour * 3600000L + minute * 60000L + second * 1000L + millis;
 
-        Date date = dateFormat.parse(s);
+        long utcMillis;
+        if (pos[0] == length) {
+            utcMillis = localToUtc(localMillis, TimeZone.getDefault());
+        } else {
+            utcMillis = localMillis - readOffset(s, pos);
+        }
 
-        Calendar calendar = java.util.Calendar.getInstance();
-        calendar.setTime(date);
+        if (pos[0] != length) {
+            throw new ParseException("Unexpected characters in date: " + strVal, pos[0]);
+        }
+
+        Calendar calendar = Calendar.getInstance();
+        if (calendar instanceof GregorianCalendar) {
+            // ISO-8601 dates are proleptic Gregorian, don't switch to the Julian calendar before 1582
+            ((GregorianCalendar) calendar).setGregorianChange(PURE_GREGORIAN);
+        }
+        calendar.setTimeInMillis(utcMillis);
         return calendar;
     }
 
     /**
-     * Serialize string.
+     * Serialize string, as UTC with milliseconds, e.g. 2015-03-21T14:35:07.123Z.
      *
      * @param src the src
      * @return the string
      */
     public static String serialize(Calendar src) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'.'SSS'Z'", Locale.getDefault());
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return dateFormat.format(src.getTime());
+        long time = src.getTimeInMillis();
+        long epochDay = floorDiv(time, MILLIS_PER_DAY);
+        int millisOfDay = (int) (time - epochDay * MILLIS_PER_DAY);
+
+        // civil date from the day number, see toEpochDay
+        long days = epochDay + DAYS_0000_TO_1970;
+        long era = floorDiv(days, DAYS_PER_400_YEARS);
+        int dayOfEra = (int) (days - era * DAYS_PER_400_YEARS);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+
+        StringBuilder sb = new StringBuilder(24);
+        if (year < 0) {
+            sb.append('-');
+            year = -year;
+        }
+        if (year < 1000) {
+            sb.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        sb.append(year);
+        sb.append('-');
+        appendTwoDigits(sb, month);
+        sb.append('-');
+        appendTwoDigits(sb, day);
+        sb.append('T');
+        appendTwoDigits(sb, millisOfDay / 3600000);
+        sb.append(':');
+        appendTwoDigits(sb, millisOfDay / 60000 % 60);
+        sb.append(':');
+        appendTwoDigits(sb, millisOfDay / 1000 % 60);
+        sb.append('.');
+        int millis = millisOfDay % 1000;
+        sb.append((char) ('0' + millis / 100));
+        appendTwoDigits(sb, millis % 100);
+        sb.append('Z');
+        return sb.toString();
+    }
+
+    private static boolean isTimeSeparator(char c) {
+        return c == 'T' || c == 't' || c == ' ';
+    }
+
+    private static int readNumber(String s, int[] pos, int minDigits, int maxDigits) throws ParseException {
+        int start = pos[0];
+        int value = 0;
+        int i = start;
+        while (i < s.length() && i - start < maxDigits) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            i++;
+        }
+
+        if (i - start < minDigits) {
+            throw new ParseException("Invalid date: " + s, start);
+        }
+
+        pos[0] = i;
+        return value;
+    }
+
+    private static int readFraction(String s, int[] pos) throws ParseException {
+        int start = pos[0];
+        int value = 0;
+        int i = start;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            if (i - start < 3) {
+                value = value * 10 + (c - '0');
+            }
+            i++;
+        }
+
+        int digits = i - start;
+        if (digits == 0) {
+            throw new ParseException("Invalid date fraction: " + s, start);
+        }
+
+        // .5 is 500 milliseconds
+        for (int d = digits; d < 3; d++) {
+            value *= 10;
+        }
+
+        pos[0] = i;
+        return value;
+    }
+
+    private static long readOffset(String s, int[] pos) throws ParseException {
+        char sign = s.charAt(pos[0]);
+        if (sign == 'Z' || sign == 'z') {
+            pos[0]++;
+            return 0;
+        }
+
+        if (sign != '+' && sign != '-') {
+            throw new ParseException("Invalid date offset: " + s, pos[0]);
+        }
+
+        pos[0]++;
+        int hours = readNumber(s, pos, 2, 2);
+        int minutes = 0;
+        if (pos[0] < s.length()) {
+            if (s.charAt(pos[0]) == ':') {
+                pos[0]++;
+            }
+            minutes = readNumber(s, pos, 2, 2);
+        }
+
+        if (hours > 23 || minutes > 59) {
+            throw new ParseException("Invalid date offset: " + s, pos[0]);
+        }
+
+        long offset = hours * 3600000L + minutes * 60000L;
+        return sign == '-' ? -offset : offset;
+    }
+
+    private static void expect(String s, int[] pos, char expected) throws ParseException {
+        if (pos[0] >= s.length() || s.charAt(pos[0]) != expected) {
+            throw new ParseException("Invalid date: " + s, pos[0]);
+        }
+
+        pos[0]++;
+    }
+
+    private static long localToUtc(long localMillis, TimeZone timeZone) {
+        int offset = timeZone.getOffset(localMillis - timeZone.getRawOffset());
+        long utc = localMillis - offset;
+
+        // the first guess can be off around daylight saving transitions
+        int actualOffset = timeZone.getOffset(utc);
+        if (actualOffset != offset) {
+            utc = localMillis - actualOffset;
+        }
+
+        return utc;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, from the civil date.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        int yearOfEra = (int) (y - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        sb.append((char) ('0' + value / 10));
+        sb.append((char) ('0' + value % 10));
     }
 }
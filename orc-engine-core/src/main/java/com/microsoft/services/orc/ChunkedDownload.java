@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.microsoft.services.orc.interfaces.HttpVerb;
+import com.microsoft.services.orc.interfaces.OrcResponse;
+import com.microsoft.services.orc.interfaces.Request;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A resumable download of the content of a media entity into a file. The content is read
+ * in ranges, each one a GET of $value with a Range header, and every range is written at
+ * its offset in the file as it is read. Several ranges are read concurrently, a range that
+ * fails is read again up to the max retries, and {@link #resume()} only reads the ranges
+ * that were not completed.
+ * The ranges after the first one are asked for with If-Range and the ETag, or Last-Modified,
+ * of the first one; if the content changes meanwhile the download fails, and
+ * {@link #resume()} downloads it again from the start.
+ * When the service doesn't support ranges, the content is read as a single stream.
+ */
+public class ChunkedDownload extends RangedTransfer<ChunkedDownload> {
+
+    private static final long TRANSFER_SIZE = 64 * 1024 * 1024;
+    private static final int PARTIAL_CONTENT = 206;
+    private static final int RANGE_NOT_SATISFIABLE = 416;
+
+    private final File file;
+    private final FileChannel channel;
+
+    // the ETag, or Last-Modified, of the first range, so every range is of the same content
+    private volatile String validator = null;
+
+    /**
+     * Instantiates a new ChunkedDownload into a file.
+     *
+     * @param fetcher the media entity fetcher
+     * @param file the file, created or overwritten
+     */
+    ChunkedDownload(OrcMediaEntityFetcher<?, ?> fetcher, File file) {
+        super(fetcher, -1);
+
+        if (file == null) {
+            throw new IllegalArgumentException("file");
+        }
+
+        this.file = file;
+        this.channel = null;
+    }
+
+    /**
+     * Instantiates a new ChunkedDownload into a channel. The channel is not closed.
+     *
+     * @param fetcher the media entity fetcher
+     * @param channel the channel, opened for writing
+     */
+    ChunkedDownload(OrcMediaEntityFetcher<?, ?> fetcher, FileChannel channel) {
+        super(fetcher, -1);
+
+        if (channel == null) {
+            throw new IllegalArgumentException("channel");
+        }
+
+        this.file = null;
+        this.channel = channel;
+    }
+
+    /**
+     * Reads the first range, that also gives the length of the content.
+     */
+    @Override
+    protected void prepare() {
+        validator = null;
+
+        Futures.addCallback(readRange(0, getChunkSize()), new FutureCallback<OrcResponse>() {
+            @Override
+            public void onSuccess(OrcResponse response) {
+                boolean readWhole = false;
+                try {
+                    String contentRange = Helpers.getHeaderValue(response.getResponse(), Constants.CONTENT_RANGE_HEADER);
+                    long length = getTotalLength(contentRange);
+
+                    if (response.getResponse().getStatus() != PARTIAL_CONTENT) {
+                        // no ranges, the whole content is in this response
+                        long written = write(response, 0, -1);
+                        resize(written);
+                        setRanges(written, true);
+                    } else if (length >= 0 && getRangeStart(contentRange) == 0) {
+                        validator = getValidator(response);
+                        setRanges(length, false);
+                        resize(length);
+                        write(response, 0, Math.min(getChunkSize(), length));
+                        firstRangeCompleted();
+                    } else {
+                        // the length is needed to split the ranges
+                        readWhole = true;
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                    return;
+                } finally {
+                    Helpers.closeResponse(response);
+                }
+
+                if (readWhole) {
+                    readWhole();
+                } else {
+                    transferRanges();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (isEmptyContent(t)) {
+                    try {
+                        resize(0);
+                        setRanges(0, true);
+                    } catch (Throwable e) {
+                        fail(e);
+                        return;
+                    }
+
+                    transferRanges();
+                } else {
+                    fail(t);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks if the first range failed because the content is empty: 416 with a Content-Range of bytes *&#47;0.
+     */
+    private static boolean isEmptyContent(Throwable t) {
+        if (!(t instanceof OrcException)) {
+            return false;
+        }
+
+        OrcResponse response = ((OrcException) t).getResponse();
+        if (response == null || response.getResponse().getStatus() != RANGE_NOT_SATISFIABLE) {
+            return false;
+        }
+
+        return getTotalLength(Helpers.getHeaderValue(response.getResponse(), Constants.CONTENT_RANGE_HEADER)) == 0;
+    }
+
+    @Override
+    protected void transferRange(final int range, final long start, final long count) {
+        Futures.addCallback(readRange(start, count), new FutureCallback<OrcResponse>() {
+            @Override
+            public void onSuccess(OrcResponse response) {
+                boolean changed;
+                try {
+                    changed = isChanged(response);
+                    if (!changed) {
+                        String contentRange = Helpers.getHeaderValue(response.getResponse(), Constants.CONTENT_RANGE_HEADER);
+                        if (response.getResponse().getStatus() != PARTIAL_CONTENT || getRangeStart(contentRange) != start) {
+                            throw new IOException("Range " + start + "-" + (start + count - 1)
+                                    + " not returned, Content-Range: " + contentRange);
+                        }
+
+                        write(response, start, count);
+                    }
+                } catch (Throwable t) {
+                    rangeFailed(range, t);
+                    return;
+                } finally {
+                    Helpers.closeResponse(response);
+                }
+
+                if (changed) {
+                    contentChanged(range, new IOException("The content changed during the download, range "
+                            + start + "-" + (start + count - 1) + " is of another version"));
+                } else {
+                    rangeCompleted(range);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                rangeFailed(range, t);
+            }
+        });
+    }
+
+    private void readWhole() {
+        Request request = fetcher.getResolver().createRequest();
+        request.setVerb(HttpVerb.GET);
+        request.addOption(Request.MUST_STREAM_RESPONSE_CONTENT, "true");
+        request.getUrl().appendPathComponent("$value");
+
+        Futures.addCallback(fetcher.oDataExecute(request), new FutureCallback<OrcResponse>() {
+            @Override
+            public void onSuccess(OrcResponse response) {
+                try {
+                    long written = write(response, 0, -1);
+                    resize(written);
+                    setRanges(written, true);
+                } catch (Throwable t) {
+                    fail(t);
+                    return;
+                } finally {
+                    Helpers.closeResponse(response);
+                }
+
+                transferRanges();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail(t);
+            }
+        });
+    }
+
+    private ListenableFuture<OrcResponse> readRange(long start, long count) {
+        Request request = fetcher.getResolver().createRequest();
+        request.setVerb(HttpVerb.GET);
+        request.addHeader(Constants.RANGE_HEADER, "bytes=" + start + "-" + (start + count - 1));
+        String ifRange = validator;
+        if (ifRange != null) {
+            // the whole content is returned, instead of the range, if it changed
+            request.addHeader(Constants.IF_RANGE_HEADER, ifRange);
+        }
+        request.addOption(Request.MUST_STREAM_RESPONSE_CONTENT, "true");
+        request.getUrl().appendPathComponent("$value");
+
+        return fetcher.oDataExecute(request);
+    }
+
+    /**
+     * Checks if a range response is of another content than the first range: a 200 response
+     * to an If-Range request, or a different validator.
+     */
+    private boolean isChanged(OrcResponse response) {
+        String expected = validator;
+        if (expected == null) {
+            return false;
+        }
+        if (response.getResponse().getStatus() != PARTIAL_CONTENT) {
+            return true;
+        }
+
+        String current = getValidator(response);
+        return current != null && !current.equals(expected);
+    }
+
+    /**
+     * Gets the value sent as If-Range: the ETag if it is a strong one, the Last-Modified otherwise.
+     */
+    private static String getValidator(OrcResponse response) {
+        String etag = Helpers.getHeaderValue(response.getResponse(), Constants.ETAG_HEADER);
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+
+        return Helpers.getHeaderValue(response.getResponse(), Constants.LAST_MODIFIED_HEADER);
+    }
+
+    /**
+     * Writes the response content at a position, with positional transfers so ranges can be
+     * written concurrently.
+     *
+     * @param count the number of bytes expected, -1 to write until the end of the content
+     * @return the number of bytes written
+     */
+    private long write(OrcResponse response, long position, long count) throws IOException {
+        InputStream stream = response.openStreamedResponse();
+        ReadableByteChannel source = Channels.newChannel(stream);
+        FileChannel target = openTarget();
+
+        try {
+            long written = 0;
+
+            while (count < 0 || written < count) {
+                long toTransfer = count < 0 ? TRANSFER_SIZE : count - written;
+                long transferred = target.transferFrom(source, position + written, toTransfer);
+                written += transferred;
+
+                // the file is sized before the ranges are written, so 0 is the end of the stream
+                if (transferred == 0) {
+                    break;
+                }
+            }
+
+            if (count >= 0 && written < count) {
+                throw new EOFException("Range at " + position + " ended after " + written + " of " + count + " bytes");
+            }
+
+            return written;
+        } finally {
+            closeTarget(target);
+        }
+    }
+
+    private void resize(long length) throws IOException {
+        FileChannel target = openTarget();
+
+        try {
+            if (target.size() > length) {
+                target.truncate(length);
+            } else if (target.size() < length) {
+                // sized up front, so the ranges are written inside the file
+                target.write(ByteBuffer.wrap(new byte[1]), length - 1);
+            }
+        } finally {
+            closeTarget(target);
+        }
+    }
+
+    private FileChannel openTarget() throws IOException {
+        if (channel != null) {
+            return channel;
+        }
+
+        return new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    private void closeTarget(FileChannel target) throws IOException {
+        if (target != channel) {
+            target.close();
+        }
+    }
+
+    /**
+     * Gets the first byte of a Content-Range header value, e.g. 0 for "bytes 0-1023/4096".
+     */
+    private static long getRangeStart(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+
+        int space = contentRange.indexOf(' ');
+        int dash = contentRange.indexOf('-', space + 1);
+        if (dash == -1) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(contentRange.substring(space + 1, dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the complete length of a Content-Range header value, e.g. 4096 for "bytes 0-1023/4096",
+     * or -1 if it is not known.
+     */
+    private static long getTotalLength(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+
+        int slash = contentRange.lastIndexOf('/');
+        if (slash == -1) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
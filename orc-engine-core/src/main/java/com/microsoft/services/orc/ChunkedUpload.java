@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.microsoft.services.orc.impl.http.FileChannelInputStream;
+import com.microsoft.services.orc.interfaces.HttpVerb;
+import com.microsoft.services.orc.interfaces.OrcResponse;
+import com.microsoft.services.orc.interfaces.Request;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A resumable upload of the content of a media entity. The content is sent in ranges,
+ * each one a PUT to $value with a Content-Range header. A range that fails is sent again
+ * up to the max retries, and {@link #resume()} only sends the ranges that were not completed.
+ * <p/>
+ * This is not an OData protocol, and it has no upload session: it only works with services
+ * that assemble the content of PUT requests with a Content-Range, others replace the content
+ * with the range. The first range is sent alone, and the others are only sent once the
+ * service has answered it with 202 Accepted; any other answer fails the upload. Content that
+ * fits in a single range is sent as a plain PUT.
+ * <p/>
+ * The ranges are sent one at a time, in order, unless {@link #setConcurrency(int)} allows more
+ * for a service that accepts them in any order. The service keeps the ranges received, so an
+ * upload can also be resumed by another instance, e.g. after a restart, by keeping
+ * {@link #getCompletedRanges()} and passing them to {@link #restoreCompletedRanges(boolean[])}.
+ */
+public class ChunkedUpload extends RangedTransfer<ChunkedUpload> {
+
+    private static final int ACCEPTED = 202;
+
+    private final File file;
+    private final byte[] content;
+
+    /**
+     * Instantiates a new ChunkedUpload of a file.
+     *
+     * @param fetcher the media entity fetcher
+     * @param file the file to upload
+     */
+    ChunkedUpload(OrcMediaEntityFetcher<?, ?> fetcher, File file) {
+        super(fetcher, file.length());
+
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("file");
+        }
+
+        this.file = file;
+        this.content = null;
+        setConcurrency(1);
+    }
+
+    /**
+     * Instantiates a new ChunkedUpload of a byte array.
+     *
+     * @param fetcher the media entity fetcher
+     * @param content the content to upload
+     */
+    ChunkedUpload(OrcMediaEntityFetcher<?, ?> fetcher, byte[] content) {
+        super(fetcher, content.length);
+
+        this.file = null;
+        this.content = content;
+        setConcurrency(1);
+    }
+
+    /**
+     * Restores the ranges sent by a previous upload of the same content, with the same chunk
+     * size. Once started, only the other ranges are sent, without checking the first range again.
+     *
+     * @param completedRanges the ranges returned by {@link #getCompletedRanges()} of the previous upload
+     * @return this upload
+     */
+    public ChunkedUpload restoreCompletedRanges(boolean[] completedRanges) {
+        restoreRanges(completedRanges);
+        return this;
+    }
+
+    /**
+     * Sends the first range alone, to check that the service accepts partial content.
+     */
+    @Override
+    protected void prepare() {
+        final long length = getLength();
+        long count = Math.min(getChunkSize(), length);
+        if (count == length) {
+            super.prepare();
+            return;
+        }
+
+        Futures.addCallback(sendRange(0, count), new FutureCallback<OrcResponse>() {
+            @Override
+            public void onSuccess(OrcResponse response) {
+                int status = response.getResponse().getStatus();
+                if (status != ACCEPTED) {
+                    fail(new IOException("The first range was answered with status " + status
+                            + " instead of 202 Accepted, the service doesn't accept partial content"));
+                    return;
+                }
+
+                // the ranges are only split once confirmed, so a resume checks again after a failure
+                setRanges(length, false);
+                firstRangeCompleted();
+                transferRanges();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail(t);
+            }
+        });
+    }
+
+    @Override
+    protected void transferRange(final int range, long start, long count) {
+        Futures.addCallback(sendRange(start, count), new FutureCallback<OrcResponse>() {
+            @Override
+            public void onSuccess(OrcResponse response) {
+                rangeCompleted(range);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                rangeFailed(range, t);
+            }
+        });
+    }
+
+    private ListenableFuture<OrcResponse> sendRange(long start, long count) {
+        final Closeable source;
+        Request request = fetcher.getResolver().createRequest();
+
+        if (content != null) {
+            source = null;
+            request.setStreamedContent(new ByteArrayInputStream(content, (int) start, (int) count), count);
+        } else {
+            // each range reads the file through its own channel, so ranges can be sent concurrently
+            FileChannel channel;
+            try {
+                channel = new FileInputStream(file).getChannel();
+            } catch (IOException e) {
+                return Futures.immediateFailedFuture(e);
+            }
+
+            source = channel;
+            request.setStreamedContent(new FileChannelInputStream(channel, start, count), count);
+        }
+
+        long length = getLength();
+
+        request.setVerb(HttpVerb.PUT);
+        if (count < length) {
+            request.addHeader(Constants.CONTENT_RANGE_HEADER, "bytes " + start + "-" + (start + count - 1) + "/" + length);
+        }
+        request.getUrl().appendPathComponent("$value");
+
+        ListenableFuture<OrcResponse> future = fetcher.oDataExecute(request);
+        Futures.addCallback(future, new FutureCallback<OrcResponse>() {
+            @Override
+            public void onSuccess(OrcResponse response) {
+                closeQuietly(source);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                closeQuietly(source);
+            }
+        });
+
+        return future;
+    }
+
+    private static void closeQuietly(Closeable source) {
+        if (source == null) {
+            return;
+        }
+
+        try {
+            source.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -41,6 +41,31 @@ public class Constants {
      */
     public static final String CONTENT_TYPE_HEADER = "Content-Type";
 
+    /**
+     * The constant CONTENT_LENGTH_HEADER.
+     */
+    public static final String CONTENT_LENGTH_HEADER = "Content-Length";
+
+    /**
+     * The constant CONTENT_RANGE_HEADER.
+     */
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+
+    /**
+     * The constant RANGE_HEADER.
+     */
+    public static final String RANGE_HEADER = "Range";
+
+    /**
+     * The constant ACCEPT_ENCODING_HEADER.
+     */
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /**
+     * The constant CONTENT_ENCODING_HEADER.
+     */
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
     /**
      * The constant JSON_CONTENT_TYPE.
      */
@@ -61,6 +86,21 @@ public class Constants {
      */
     public static final String MULTIPART_CONTENT_TYPE = "multipart/form-data; boundary=" + MULTIPART_BOUNDARY_NAME;
 
+    /**
+     * The constant MULTIPART_MIXED_CONTENT_TYPE.
+     */
+    public static final String MULTIPART_MIXED_CONTENT_TYPE = "multipart/mixed";
+
+    /**
+     * The constant HTTP_CONTENT_TYPE.
+     */
+    public static final String HTTP_CONTENT_TYPE = "application/http";
+
+    /**
+     * The constant BATCH_PATH_COMPONENT.
+     */
+    public static final String BATCH_PATH_COMPONENT = "$batch";
+
     /**
      * The constant ACCEPT_HEADER.
      */
@@ -71,6 +111,41 @@ public class Constants {
      */
     public static final String IF_MATCH_HEADER = "If-Match";
 
+    /**
+     * The constant IF_NONE_MATCH_HEADER.
+     */
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    /**
+     * The constant ETAG_HEADER.
+     */
+    public static final String ETAG_HEADER = "ETag";
+
+    /**
+     * The constant IF_RANGE_HEADER.
+     */
+    public static final String IF_RANGE_HEADER = "If-Range";
+
+    /**
+     * The constant LAST_MODIFIED_HEADER.
+     */
+    public static final String LAST_MODIFIED_HEADER = "Last-Modified";
+
+    /**
+     * The constant CACHE_CONTROL_HEADER.
+     */
+    public static final String CACHE_CONTROL_HEADER = "Cache-Control";
+
+    /**
+     * The constant VARY_HEADER.
+     */
+    public static final String VARY_HEADER = "Vary";
+
+    /**
+     * The constant AUTHORIZATION_HEADER.
+     */
+    public static final String AUTHORIZATION_HEADER = "Authorization";
+
     /**
      * The constant ODATA_VERSION_HEADER.
      */
@@ -96,6 +171,16 @@ public class Constants {
      */
     public static final String ODATA_TYPE_JSON_PROPERTY = "@odata.type";
 
+    /**
+     * The constant ODATA_ANNOTATION_PREFIX
+     */
+    public static final String ODATA_ANNOTATION_PREFIX = "@odata.";
+
+    /**
+     * The constant ODATA_NEXT_LINK_JSON_PROPERTY
+     */
+    public static final String ODATA_NEXT_LINK_JSON_PROPERTY = "@odata.nextLink";
+
     /**
      * The constant ODATA_TYPE_PROPERTY_NAME
      */
@@ -9,14 +9,19 @@ import com.microsoft.services.orc.interfaces.LogLevel;
 import com.microsoft.services.orc.interfaces.OrcResponse;
 import com.microsoft.services.orc.interfaces.OrcURL;
 import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.RequestMetrics;
+import com.microsoft.services.orc.interfaces.RequestPhase;
+import com.microsoft.services.orc.interfaces.Response;
 
-import java.io.UnsupportedEncodingException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The type Helpers.
@@ -25,9 +30,30 @@ public class Helpers {
 
     private static final String ENCODE_EXCEPTIONS = "!$&'()*+,;=:@";
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // ASCII characters that are not percent-encoded: unreserved characters and the encode exceptions
+    private static final boolean[] UNRESERVED = new boolean[128];
+
     private static final HashSet<String> reservedNames;
 
+    private static final int MAX_CACHED_ENCODINGS = 1024;
+    private static final Map<String, String> cachedEncodings = new ConcurrentHashMap<String, String>();
+
     static {
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c : ("-._~" + ENCODE_EXCEPTIONS).toCharArray()) {
+            UNRESERVED[c] = true;
+        }
+
         reservedNames = new HashSet<String>();
         reservedNames.add("abstract");
         reservedNames.add("assert");
@@ -144,53 +170,168 @@ public class Helpers {
      * @return the string
      */
     public static String urlEncode(String s) {
-        return percentEncode(s, ENCODE_EXCEPTIONS);
-    }
-
-    private static String percentEncode(String s, String reserved) {
         if (s == null) {
             return null;
         }
 
-        StringBuilder builder = new StringBuilder(s.length());
+        int length = s.length();
+        int i = 0;
+        while (i < length) {
+            char c = s.charAt(i);
+            if (c >= 128 || !UNRESERVED[c]) {
+                break;
+            }
+            i++;
+        }
+
+        if (i == length) {
+            // nothing to encode, which is the common case for names and ids
+            return s;
+        }
 
-        int escapeStart = -1;
+        StringBuilder builder = new StringBuilder(length + 16);
+        builder.append(s, 0, i);
 
-        for (int i = 0; i < s.length(); i++) {
+        for (; i < length; i++) {
             char c = s.charAt(i);
 
-            if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || "-._~".indexOf(c) != -1 || reserved.indexOf(c) != -1) {
-                if (escapeStart != -1) {
-                    appendHex(builder, s.substring(escapeStart, i));
-                    escapeStart = -1;
+            if (c < 128) {
+                if (UNRESERVED[c]) {
+                    builder.append(c);
+                } else {
+                    appendHex(builder, c);
                 }
+            } else if (c < 0x800) {
+                appendHex(builder, 0xC0 | (c >> 6));
+                appendHex(builder, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                appendHex(builder, 0xF0 | (codePoint >> 18));
+                appendHex(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendHex(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendHex(builder, 0x80 | (codePoint & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // unpaired surrogates can't be encoded in UTF-8, they become '?' like String.getBytes does
+                appendHex(builder, '?');
+            } else {
+                appendHex(builder, 0xE0 | (c >> 12));
+                appendHex(builder, 0x80 | ((c >> 6) & 0x3F));
+                appendHex(builder, 0x80 | (c & 0x3F));
+            }
+        }
 
-                builder.append(c);
-            } else if (escapeStart == -1) {
-                escapeStart = i;
+        return builder.toString();
+    }
+
+    /**
+     * Url encode a value that comes from a small, fixed set, like entity set names,
+     * navigation properties or query parameter names. The encoded values are cached.
+     * Use {@link #urlEncode(String)} for values that change between requests, like ids.
+     *
+     * @param s the s
+     * @return the string
+     */
+    public static String urlEncodeCached(String s) {
+        if (s == null) {
+            return null;
+        }
+
+        String encoded = cachedEncodings.get(s);
+        if (encoded == null) {
+            encoded = urlEncode(s);
+            if (cachedEncodings.size() < MAX_CACHED_ENCODINGS) {
+                cachedEncodings.put(s, encoded);
             }
         }
 
-        if (escapeStart != -1) {
-            appendHex(builder, s.substring(escapeStart, s.length()));
+        return encoded;
+    }
+
+    /**
+     * Url decode a percent-encoded path component. Unlike a form value, '+' is kept as is.
+     *
+     * @param s the s
+     * @return the string
+     */
+    public static String urlDecode(String s) {
+        if (s == null || s.indexOf('%') == -1) {
+            return s;
+        }
+
+        int length = s.length();
+        StringBuilder builder = new StringBuilder(length);
+        byte[] bytes = new byte[length / 3];
+
+        int i = 0;
+        while (i < length) {
+            char c = s.charAt(i);
+            if (c != '%' || i + 2 >= length || hexValue(s.charAt(i + 1)) < 0 || hexValue(s.charAt(i + 2)) < 0) {
+                builder.append(c);
+                i++;
+                continue;
+            }
+
+            // a run of escaped bytes is decoded at once, as a character can span several of them
+            int count = 0;
+            while (i + 2 < length && s.charAt(i) == '%'
+                    && hexValue(s.charAt(i + 1)) >= 0 && hexValue(s.charAt(i + 2)) >= 0) {
+                bytes[count++] = (byte) ((hexValue(s.charAt(i + 1)) << 4) | hexValue(s.charAt(i + 2)));
+                i += 3;
+            }
+
+            builder.append(new String(bytes, 0, count, Constants.UTF8));
         }
 
         return builder.toString();
     }
 
-    private static void appendHex(StringBuilder builder, String s) {
-        try {
-            for (byte b : s.getBytes(Constants.UTF8_NAME)) {
-                appendHex(builder, b);
-            }
-        } catch (UnsupportedEncodingException e) {
-            // UTF-8 should support any string
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
         }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+
+        return -1;
+    }
+
+    private static void appendHex(StringBuilder builder, int b) {
+        builder.append('%');
+        builder.append(HEX_DIGITS[(b >> 4) & 0x0F]);
+        builder.append(HEX_DIGITS[b & 0x0F]);
     }
 
-    private static void appendHex(StringBuilder sb, byte b) {
-        sb.append('%');
-        sb.append(String.format("%02X", b));
+    /**
+     * Gets the first value of a response header, ignoring the case of the header name.
+     *
+     * @param response the response
+     * @param name     the header name
+     * @return the header value, or null if the header is not present
+     */
+    public static String getHeaderValue(Response response, String name) {
+        List<String> values = response.getHeaders(name);
+
+        if (values == null) {
+            Map<String, List<String>> headers = response.getHeaders();
+            if (headers != null) {
+                for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                    if (name.equalsIgnoreCase(header.getKey())) {
+                        values = header.getValue();
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+
+        return values.get(0);
     }
 
     /**
@@ -286,6 +427,117 @@ public class Helpers {
         });
     }
 
+    /**
+     * Deserializes an entity straight from the response stream, without copying the
+     * response content into a byte array and a String first.
+     *
+     * @param future   the future
+     * @param clazz    the clazz
+     * @param resolver the resolver
+     * @return the listenable future
+     */
+    public static <TEntity> ListenableFuture<TEntity> transformResponseToEntityListenableFuture(
+            ListenableFuture<OrcResponse> future,
+            final Class<TEntity> clazz,
+            final DependencyResolver resolver) {
+
+        return Futures.transform(future, new AsyncFunction<OrcResponse, TEntity>() {
+            @Override
+            public ListenableFuture<TEntity> apply(OrcResponse response) throws Exception {
+                SettableFuture<TEntity> result = SettableFuture.create();
+                try {
+                    resolver.getLogger().log("Entity Deserialization Started", LogLevel.VERBOSE);
+                    long started = System.nanoTime();
+                    TEntity entity = resolver.getJsonSerializer().deserialize(openResponseReader(response), clazz);
+                    recordDeserialization(resolver, response, started);
+                    resolver.getLogger().log("Entity Deserialization Finished", LogLevel.VERBOSE);
+
+                    result.set(entity);
+                } catch (Throwable t) {
+                    result.setException(t);
+                } finally {
+                    closeResponse(response);
+                }
+
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Deserializes an entity collection straight from the response stream, without copying the
+     * response content into a byte array and a String first.
+     *
+     * @param future   the future
+     * @param clazz    the clazz
+     * @param resolver the resolver
+     * @return the listenable future
+     */
+    public static <TEntity> ListenableFuture<List<TEntity>> transformResponseToEntityListListenableFuture(
+            ListenableFuture<OrcResponse> future,
+            final Class<TEntity> clazz,
+            final DependencyResolver resolver) {
+
+        return Futures.transform(future, new AsyncFunction<OrcResponse, List<TEntity>>() {
+            @Override
+            public ListenableFuture<List<TEntity>> apply(OrcResponse response) throws Exception {
+                SettableFuture<List<TEntity>> result = SettableFuture.create();
+                try {
+                    resolver.getLogger().log("Entity collection Deserialization Started", LogLevel.VERBOSE);
+                    long started = System.nanoTime();
+                    List<TEntity> list = resolver.getJsonSerializer().deserializeList(openResponseReader(response), clazz, null);
+                    recordDeserialization(resolver, response, started);
+                    resolver.getLogger().log("Entity collection Deserialization Finished", LogLevel.VERBOSE);
+
+                    result.set(list);
+                } catch (Throwable t) {
+                    result.setException(t);
+                } finally {
+                    closeResponse(response);
+                }
+
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Opens a reader over the response content.
+     *
+     * @param response the response
+     * @return the reader
+     */
+    static Reader openResponseReader(OrcResponse response) {
+        return new InputStreamReader(response.openStreamedResponse(), Constants.UTF8);
+    }
+
+    /**
+     * Reports the time spent deserializing a response to the request metrics, if any.
+     *
+     * @param resolver the resolver
+     * @param response the response
+     * @param started  the value of System.nanoTime() when the deserialization started
+     */
+    static void recordDeserialization(DependencyResolver resolver, OrcResponse response, long started) {
+        RequestMetrics metrics = resolver.getRequestMetrics();
+        if (metrics != null && response instanceof OrcResponseImpl) {
+            String key = ((OrcResponseImpl) response).getMetricsKey();
+            metrics.recordTiming(key, RequestPhase.DESERIALIZATION, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Closes a response whose content was streamed.
+     *
+     * @param response the response
+     */
+    static void closeResponse(OrcResponse response) {
+        try {
+            response.closeStreamedResponse();
+        } catch (Throwable ignored) {
+        }
+    }
+
     /**
      * Add null result callback.
      *
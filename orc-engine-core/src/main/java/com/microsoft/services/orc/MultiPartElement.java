@@ -1,10 +1,19 @@
 package com.microsoft.services.orc;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 public class MultiPartElement {
     private static final String HTML_CONTENT_TYPE = "text/html";
     private String name;
     private String contentType;
     private byte[] content;
+    private InputStream contentStream;
+    private File contentFile;
+    private long contentLength;
 
     public MultiPartElement(String name, String content) {
         this(name, HTML_CONTENT_TYPE, content.getBytes(Constants.UTF8));
@@ -14,10 +23,48 @@ public class MultiPartElement {
         this.name = name;
         this.contentType = contentType;
 
+        setContent(content);
+    }
+
+    /**
+     * Instantiates a new MultiPartElement read from a stream while the request is sent.
+     * The stream is read once, and closed when the part has been written.
+     *
+     * @param name the name
+     * @param contentType the content type
+     * @param content the content stream
+     * @param contentLength the number of bytes read from the stream
+     */
+    public MultiPartElement(String name, String contentType, InputStream content, long contentLength) {
+        this.name = name;
+        this.contentType = contentType;
+
         if (content == null) {
             throw new IllegalArgumentException("content");
         }
-        this.content = content;
+        if (contentLength < 0) {
+            throw new IllegalArgumentException("contentLength");
+        }
+        this.contentStream = content;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Instantiates a new MultiPartElement read from a file while the request is sent.
+     *
+     * @param name the name
+     * @param contentType the content type
+     * @param content the content file
+     */
+    public MultiPartElement(String name, String contentType, File content) {
+        this.name = name;
+        this.contentType = contentType;
+
+        if (content == null || !content.isFile()) {
+            throw new IllegalArgumentException("content");
+        }
+        this.contentFile = content;
+        this.contentLength = content.length();
     }
 
     public String getName() {
@@ -36,11 +83,47 @@ public class MultiPartElement {
         this.contentType = contentType;
     }
 
+    /**
+     * Gets the content.
+     *
+     * @return the content, or null if the content is read from a stream or a file
+     */
     public byte[] getContent() {
         return content;
     }
 
     public void setContent(byte[] content) {
+        if (content == null) {
+            throw new IllegalArgumentException("content");
+        }
         this.content = content;
+        this.contentStream = null;
+        this.contentFile = null;
+        this.contentLength = content.length;
+    }
+
+    /**
+     * Gets the content length.
+     *
+     * @return the number of bytes of content
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Opens the content.
+     *
+     * @return the content stream
+     * @throws IOException if the content file can't be opened
+     */
+    public InputStream openContent() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        } else if (contentFile != null) {
+            return new FileInputStream(contentFile);
+        } else {
+            return contentStream;
+        }
     }
 }
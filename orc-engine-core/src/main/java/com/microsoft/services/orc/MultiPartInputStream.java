@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * A multipart/form-data body read part by part: the content of each part is only
+ * opened when the previous parts have been read, so the body is never held in memory.
+ */
+class MultiPartInputStream extends InputStream {
+
+    // boundary lines (byte[]) and parts (MultiPartElement), in body order
+    private final Object[] segments;
+    private final long totalLength;
+
+    private int nextSegment = 0;
+    private InputStream current = null;
+    private String currentName = null;
+    private long currentRemaining = 0;
+
+    /**
+     * Instantiates a new MultiPartInputStream.
+     *
+     * @param elements the parts
+     * @param boundary the boundary between the parts
+     */
+    MultiPartInputStream(List<MultiPartElement> elements, String boundary) {
+        segments = new Object[elements.size() * 2 + 1];
+
+        long length = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            MultiPartElement element = elements.get(i);
+
+            StringBuilder header = new StringBuilder();
+            if (i > 0) {
+                header.append(Constants.HTTP_NEW_LINE);
+            }
+            header.append("--").append(boundary).append(Constants.HTTP_NEW_LINE);
+            header.append("Content-Disposition:form-data; name=").append(element.getName()).append(Constants.HTTP_NEW_LINE);
+            header.append("Content-type:").append(element.getContentType()).append(Constants.HTTP_NEW_LINE).append(Constants.HTTP_NEW_LINE);
+
+            byte[] headerBytes = header.toString().getBytes(Constants.UTF8);
+            segments[i * 2] = headerBytes;
+            segments[i * 2 + 1] = element;
+            length += headerBytes.length + element.getContentLength();
+        }
+
+        // the last part ends with a new line, then the close line starts with one
+        String closeLine = Constants.HTTP_NEW_LINE + "--" + boundary + "--";
+        if (!elements.isEmpty()) {
+            closeLine = Constants.HTTP_NEW_LINE + closeLine;
+        }
+
+        byte[] closeBytes = closeLine.getBytes(Constants.UTF8);
+        segments[segments.length - 1] = closeBytes;
+        totalLength = length + closeBytes.length;
+    }
+
+    /**
+     * Gets the length of the body.
+     *
+     * @return the number of bytes of the body
+     */
+    long getLength() {
+        return totalLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        while (true) {
+            if (current == null && !openNextSegment()) {
+                return -1;
+            }
+
+            if (currentRemaining == 0) {
+                closeCurrent();
+                continue;
+            }
+
+            int read = current.read(buffer, offset, (int) Math.min(length, currentRemaining));
+            if (read == -1) {
+                throw new EOFException("Content of multipart element " + currentName
+                        + " is shorter than its length, " + currentRemaining + " bytes missing");
+            }
+
+            currentRemaining -= read;
+            if (read > 0) {
+                return read;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+        nextSegment = segments.length;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        if (nextSegment == segments.length) {
+            return false;
+        }
+
+        Object segment = segments[nextSegment++];
+        if (segment instanceof byte[]) {
+            byte[] bytes = (byte[]) segment;
+            current = new ByteArrayInputStream(bytes);
+            currentName = null;
+            currentRemaining = bytes.length;
+        } else {
+            MultiPartElement element = (MultiPartElement) segment;
+            current = element.openContent();
+            currentName = element.getName();
+            currentRemaining = element.getContentLength();
+        }
+
+        return true;
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            InputStream stream = current;
+            current = null;
+            stream.close();
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.microsoft.services.orc;
 
-import com.google.common.primitives.Bytes;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.microsoft.services.orc.interfaces.HttpVerb;
 import com.microsoft.services.orc.interfaces.OrcResponse;
 import com.microsoft.services.orc.interfaces.Request;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,7 +27,8 @@ public class MultipartCollectionFetcher<TEntity, TFetcher extends OrcEntityFetch
     }
 
     /**
-     * Add listenable future.
+     * Add listenable future. The body is streamed: the content of the parts
+     * backed by a stream or a file is read while the request is sent.
      *
      * @param multiPartElements the parts
      * @return the listenable future
@@ -39,35 +38,15 @@ public class MultipartCollectionFetcher<TEntity, TFetcher extends OrcEntityFetch
 
         Request request = getResolver().createRequest();
 
-        byte[][] content = new byte[multiPartElements.size()][];
-
-        for (int i = 0; i < multiPartElements.size(); i++) {
-            MultiPartElement element = multiPartElements.get(i);
-
-            List<Byte> header = new ArrayList<Byte>();
-            String line = "--" + Constants.MULTIPART_BOUNDARY_NAME + random + Constants.HTTP_NEW_LINE;
-            line += "Content-Disposition:form-data; name=" + element.getName() + Constants.HTTP_NEW_LINE;
-            line += "Content-type:" + element.getContentType() + Constants.HTTP_NEW_LINE + Constants.HTTP_NEW_LINE;
-
-            for (byte b : line.getBytes()) {
-                header.add(b);
-            }
-
-            content[i] = Bytes.concat(Bytes.toArray(header), element.getContent(), Constants.HTTP_NEW_LINE.getBytes());
-        }
-
-        String closeLine = Constants.HTTP_NEW_LINE + "--" + Constants.MULTIPART_BOUNDARY_NAME + random + "--";
-
+        MultiPartInputStream content = new MultiPartInputStream(multiPartElements, Constants.MULTIPART_BOUNDARY_NAME + random);
 
         request.addHeader(Constants.CONTENT_TYPE_HEADER, Constants.MULTIPART_CONTENT_TYPE + random );
-        request.setContent(Bytes.concat(Bytes.concat(content), closeLine.getBytes()));
+        request.setStreamedContent(content, content.getLength());
 
         request.setVerb(HttpVerb.POST);
         ListenableFuture<OrcResponse> future = oDataExecute(request);
 
         return transformToVoidListenableFuture(future);
     }
-
-
 }
 
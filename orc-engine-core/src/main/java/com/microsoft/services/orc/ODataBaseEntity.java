@@ -16,8 +16,6 @@
  */
 package com.microsoft.services.orc;
 
-import java.util.AbstractMap;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -27,28 +25,75 @@ public class ODataBaseEntity {
 
     protected String $$__ODataType;
 
-    protected Map.Entry<ODataBaseEntity, String> $$$__$$$parentReference = null;
+    private transient ODataBaseEntity $$$__$$$parent = null;
 
-    ConcurrentHashMap<String, Object> $$$__$$$updatedValues = new ConcurrentHashMap<String, Object>();
+    private transient String $$$__$$$referenceProperty = null;
+
+    // updated values as property, value pairs, only allocated when the entity is changed
+    private transient Object[] $$$__$$$updatedValues = null;
+
+    private transient int $$$__$$$updatedCount = 0;
 
     protected void setODataType(String value) {
         this.$$__ODataType = value;
     }
 
-    public ConcurrentHashMap<String, Object> getUpdatedValues() {
+    public synchronized ConcurrentHashMap<String, Object> getUpdatedValues() {
+        ConcurrentHashMap<String, Object> updatedValues = new ConcurrentHashMap<String, Object>();
+        for (int i = 0; i < $$$__$$$updatedCount; i++) {
+            updatedValues.put((String) $$$__$$$updatedValues[i * 2], $$$__$$$updatedValues[i * 2 + 1]);
+        }
 
-        return new ConcurrentHashMap<String, Object>($$$__$$$updatedValues);
+        return updatedValues;
     }
 
     public void valueChanged(String property, Object payload) {
-        $$$__$$$updatedValues.put(property, payload);
-        if ($$$__$$$parentReference != null) {
-            String referenceProperty = $$$__$$$parentReference.getValue();
-            $$$__$$$parentReference.getKey().valueChanged(referenceProperty, this);
+        if (property == null || payload == null) {
+            // the updated values are returned as a ConcurrentHashMap
+            throw new NullPointerException();
+        }
+
+        ODataBaseEntity parent;
+        String referenceProperty;
+
+        synchronized (this) {
+            putUpdatedValue(property, payload);
+            parent = $$$__$$$parent;
+            referenceProperty = $$$__$$$referenceProperty;
+        }
+
+        if (parent != null) {
+            parent.valueChanged(referenceProperty, this);
         }
     }
 
-    public void setParent(ODataBaseEntity parentEntity, String referenceProperty) {
-        $$$__$$$parentReference = new AbstractMap.SimpleEntry<ODataBaseEntity, String>(parentEntity, referenceProperty);
+    public synchronized void setParent(ODataBaseEntity parentEntity, String referenceProperty) {
+        $$$__$$$parent = parentEntity;
+        $$$__$$$referenceProperty = referenceProperty;
+    }
+
+    private void putUpdatedValue(String property, Object payload) {
+        Object[] values = $$$__$$$updatedValues;
+        int count = $$$__$$$updatedCount;
+
+        for (int i = 0; i < count; i++) {
+            if (property.equals(values[i * 2])) {
+                values[i * 2 + 1] = payload;
+                return;
+            }
+        }
+
+        if (values == null) {
+            values = new Object[4];
+        } else if (values.length == count * 2) {
+            Object[] grown = new Object[values.length * 2];
+            System.arraycopy(values, 0, grown, 0, values.length);
+            values = grown;
+        }
+
+        values[count * 2] = property;
+        values[count * 2 + 1] = payload;
+        $$$__$$$updatedValues = values;
+        $$$__$$$updatedCount = count + 1;
     }
 }
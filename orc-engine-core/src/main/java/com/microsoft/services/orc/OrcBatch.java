@@ -0,0 +1,526 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.impl.http.ResponseImpl;
+import com.microsoft.services.orc.interfaces.HttpVerb;
+import com.microsoft.services.orc.interfaces.OrcResponse;
+import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Groups the requests issued through a container into a single OData $batch request.
+ * <p/>
+ * While the batch is open, every request issued from the thread that called
+ * {@link BaseOrcContainer#beginBatch()} is captured instead of being sent, and its
+ * future completes when the batch response is received. Requests issued between
+ * {@link #beginChangeSet()} and {@link #endChangeSet()} are sent as one atomic change set.
+ * A batch that won't be executed must be cancelled with {@link #cancel()}.
+ */
+public class OrcBatch {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private final BaseOrcContainer container;
+    private final List<BatchGroup> groups = new ArrayList<BatchGroup>();
+    private BatchGroup currentChangeSet = null;
+    private boolean executed = false;
+
+    /**
+     * Instantiates a new OrcBatch.
+     *
+     * @param container the container the batch is sent to
+     */
+    OrcBatch(BaseOrcContainer container) {
+        this.container = container;
+    }
+
+    /**
+     * Checks if the batch has been executed.
+     *
+     * @return true once {@link #execute()} or {@link #cancel()} has been called
+     */
+    synchronized boolean isExecuted() {
+        return executed;
+    }
+
+    /**
+     * Starts a change set. Requests that modify data are added to it until {@link #endChangeSet()}.
+     * GET requests are never part of a change set.
+     */
+    public synchronized void beginChangeSet() {
+        ensureNotExecuted();
+        if (currentChangeSet != null) {
+            throw new IllegalStateException("A change set is already open");
+        }
+
+        currentChangeSet = new BatchGroup(true);
+        groups.add(currentChangeSet);
+    }
+
+    /**
+     * Ends the current change set.
+     */
+    public synchronized void endChangeSet() {
+        if (currentChangeSet == null) {
+            throw new IllegalStateException("There is no open change set");
+        }
+
+        currentChangeSet = null;
+    }
+
+    /**
+     * Gets the number of requests captured by the batch.
+     *
+     * @return the number of requests
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (BatchGroup group : groups) {
+            size += group.parts.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Sends the captured requests as one $batch request and stops capturing. It can be
+     * called from any thread, the thread that opened the batch stops being captured.
+     * The future fails if the batch request itself fails; the result of each
+     * captured request is reported through its own future.
+     *
+     * @return the listenable future
+     */
+    public ListenableFuture<Void> execute() {
+        final List<BatchGroup> toSend;
+        synchronized (this) {
+            ensureNotExecuted();
+            executed = true;
+            currentChangeSet = null;
+
+            toSend = new ArrayList<BatchGroup>();
+            for (BatchGroup group : groups) {
+                if (!group.parts.isEmpty()) {
+                    toSend.add(group);
+                }
+            }
+        }
+
+        container.endBatch(this);
+
+        if (toSend.isEmpty()) {
+            SettableFuture<Void> result = SettableFuture.create();
+            result.set(null);
+            return result;
+        }
+
+        try {
+            String boundary = "batch_" + UUID.randomUUID().toString();
+
+            Request request = container.getResolver().createRequest();
+            request.setVerb(HttpVerb.POST);
+            request.getUrl().appendPathComponent(Constants.BATCH_PATH_COMPONENT);
+            request.addHeader(Constants.CONTENT_TYPE_HEADER, Constants.MULTIPART_MIXED_CONTENT_TYPE + "; boundary=" + boundary);
+            request.addHeader(Constants.ACCEPT_HEADER, Constants.MULTIPART_MIXED_CONTENT_TYPE);
+            request.setContent(writeBody(toSend, boundary));
+
+            ListenableFuture<OrcResponse> future = container.oDataExecute(request);
+
+            Futures.addCallback(future, new FutureCallback<OrcResponse>() {
+                @Override
+                public void onSuccess(OrcResponse response) {
+                    try {
+                        dispatchResponses(toSend, response);
+                    } catch (Throwable t) {
+                        failAll(toSend, t);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    failAll(toSend, t);
+                }
+            });
+
+            return Futures.transform(future, new AsyncFunction<OrcResponse, Void>() {
+                @Override
+                public ListenableFuture<Void> apply(OrcResponse input) throws Exception {
+                    SettableFuture<Void> result = SettableFuture.create();
+                    result.set(null);
+                    return result;
+                }
+            });
+        } catch (Throwable t) {
+            failAll(toSend, t);
+            SettableFuture<Void> result = SettableFuture.create();
+            result.setException(t);
+            return result;
+        }
+    }
+
+    /**
+     * Cancels the batch: stops capturing requests and cancels the futures of the requests
+     * captured so far. It can be called from any thread, and does nothing once the batch
+     * was executed or cancelled.
+     */
+    public void cancel() {
+        List<BatchGroup> toCancel;
+        synchronized (this) {
+            if (executed) {
+                return;
+            }
+
+            executed = true;
+            currentChangeSet = null;
+            toCancel = new ArrayList<BatchGroup>(groups);
+            groups.clear();
+        }
+
+        container.endBatch(this);
+
+        for (BatchGroup group : toCancel) {
+            for (BatchPart part : group.parts) {
+                part.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Captures a request that was fully prepared by the container.
+     *
+     * @param request the request
+     * @return the future for the request's response, or null if the batch was executed or cancelled
+     */
+    synchronized ListenableFuture<Response> add(Request request) {
+        if (executed) {
+            return null;
+        }
+
+        BatchPart part = new BatchPart(request);
+
+        if (currentChangeSet != null && request.getVerb() != HttpVerb.GET) {
+            currentChangeSet.parts.add(part);
+        } else {
+            BatchGroup group = new BatchGroup(false);
+            group.parts.add(part);
+            groups.add(group);
+        }
+
+        return part.future;
+    }
+
+    private void ensureNotExecuted() {
+        if (executed) {
+            throw new IllegalStateException("The batch was already executed or cancelled");
+        }
+    }
+
+    private static byte[] writeBody(List<BatchGroup> groups, String boundary) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int contentId = 1;
+
+        for (BatchGroup group : groups) {
+            writeLine(body, "--" + boundary);
+
+            if (group.changeSet) {
+                String changeSetBoundary = "changeset_" + UUID.randomUUID().toString();
+                writeLine(body, Constants.CONTENT_TYPE_HEADER + ": " + Constants.MULTIPART_MIXED_CONTENT_TYPE + "; boundary=" + changeSetBoundary);
+                writeLine(body, "");
+
+                for (BatchPart part : group.parts) {
+                    writeLine(body, "--" + changeSetBoundary);
+                    part.contentId = Integer.toString(contentId++);
+                    writePart(body, part.request, part.contentId);
+                }
+
+                writeLine(body, "--" + changeSetBoundary + "--");
+            } else {
+                writePart(body, group.parts.get(0).request, null);
+            }
+        }
+
+        writeLine(body, "--" + boundary + "--");
+        return body.toByteArray();
+    }
+
+    private static void writePart(ByteArrayOutputStream body, Request request, String contentId) throws IOException {
+        writeLine(body, Constants.CONTENT_TYPE_HEADER + ": " + Constants.HTTP_CONTENT_TYPE);
+        writeLine(body, "Content-Transfer-Encoding: binary");
+        if (contentId != null) {
+            writeLine(body, "Content-ID: " + contentId);
+        }
+        writeLine(body, "");
+
+        writeLine(body, request.getVerb() + " " + request.getUrl().toString() + " HTTP/1.1");
+
+        Map<String, String> headers = request.getHeaders();
+        for (String name : headers.keySet()) {
+            if (isBatchLevelHeader(name)) {
+                continue;
+            }
+
+            writeLine(body, name + ": " + headers.get(name));
+        }
+        writeLine(body, "");
+
+        byte[] content = request.getContent();
+        if (content == null && request.getStreamedContent() != null) {
+            content = ByteStreams.toByteArray(request.getStreamedContent());
+        }
+
+        if (content != null) {
+            body.write(content);
+        }
+        writeLine(body, "");
+    }
+
+    private static boolean isBatchLevelHeader(String name) {
+        // these are sent once, on the $batch request itself
+        return name.equalsIgnoreCase(Constants.AUTHORIZATION_HEADER)
+                || name.equalsIgnoreCase(Constants.USER_AGENT_HEADER)
+                || name.equalsIgnoreCase(Constants.TELEMETRY_HEADER);
+    }
+
+    private static void writeLine(ByteArrayOutputStream body, String line) throws IOException {
+        body.write(line.getBytes(Constants.UTF8));
+        body.write(Constants.HTTP_NEW_LINE.getBytes(Constants.UTF8));
+    }
+
+    private static void dispatchResponses(List<BatchGroup> groups, OrcResponse batchResponse) throws IOException {
+        String contentType = Helpers.getHeaderValue(batchResponse.getResponse(), Constants.CONTENT_TYPE_HEADER);
+        String boundary = getBoundary(contentType);
+        if (boundary == null) {
+            throw new IOException("The batch response is not a multipart response: " + contentType);
+        }
+
+        // ISO-8859-1 maps every byte to one char, so part bodies can be converted back unchanged
+        String payload = new String(batchResponse.getPayload(), ISO_8859_1);
+        List<String> responseParts = splitMultipart(payload, boundary);
+
+        for (int i = 0; i < groups.size(); i++) {
+            BatchGroup group = groups.get(i);
+
+            if (i >= responseParts.size()) {
+                failAll(group, new IOException("The batch response has no response for this request"));
+                continue;
+            }
+
+            String responsePart = responseParts.get(i);
+            int headersEnd = responsePart.indexOf("\r\n\r\n");
+            String partHeaders = headersEnd == -1 ? responsePart : responsePart.substring(0, headersEnd);
+            String partBody = headersEnd == -1 ? "" : responsePart.substring(headersEnd + 4);
+
+            String changeSetBoundary = getBoundary(getPartHeader(partHeaders, Constants.CONTENT_TYPE_HEADER));
+
+            if (changeSetBoundary != null) {
+                List<String> changeSetParts = splitMultipart(partBody, changeSetBoundary);
+
+                // the responses of a change set can come in any order, they are matched by Content-ID
+                Map<String, String> partsById = new HashMap<String, String>();
+                for (String changeSetPart : changeSetParts) {
+                    String contentId = getContentId(changeSetPart);
+                    if (contentId != null) {
+                        partsById.put(contentId, changeSetPart);
+                    }
+                }
+
+                for (int j = 0; j < group.parts.size(); j++) {
+                    BatchPart part = group.parts.get(j);
+                    String changeSetPart = partsById.get(part.contentId);
+                    if (changeSetPart == null && partsById.isEmpty() && j < changeSetParts.size()) {
+                        // without Content-IDs, the responses are in the order of the requests
+                        changeSetPart = changeSetParts.get(j);
+                    }
+
+                    if (changeSetPart != null) {
+                        part.future.set(parseHttpResponse(changeSetPart));
+                    } else {
+                        part.future.setException(new IOException("The batch response has no response for this request"));
+                    }
+                }
+            } else {
+                // a failed change set is answered with a single response for all its requests
+                for (BatchPart part : group.parts) {
+                    part.future.set(parseHttpResponse(responsePart));
+                }
+            }
+        }
+    }
+
+    private static List<String> splitMultipart(String payload, String boundary) {
+        List<String> parts = new ArrayList<String>();
+        String delimiter = "--" + boundary;
+
+        int index = payload.indexOf(delimiter);
+        while (index != -1) {
+            int start = index + delimiter.length();
+            if (payload.startsWith("--", start)) {
+                break;
+            }
+
+            int lineEnd = payload.indexOf(Constants.HTTP_NEW_LINE, start);
+            if (lineEnd == -1) {
+                break;
+            }
+            start = lineEnd + Constants.HTTP_NEW_LINE.length();
+
+            int next = payload.indexOf(Constants.HTTP_NEW_LINE + delimiter, start);
+            if (next == -1) {
+                parts.add(payload.substring(start));
+                break;
+            }
+
+            parts.add(payload.substring(start, next));
+            index = next + Constants.HTTP_NEW_LINE.length();
+        }
+
+        return parts;
+    }
+
+    private static Response parseHttpResponse(String part) throws IOException {
+        // skip the MIME headers of the part, up to the status line
+        int mimeHeadersEnd = part.indexOf("\r\n\r\n");
+        String httpResponse = mimeHeadersEnd == -1 ? part : part.substring(mimeHeadersEnd + 4);
+        if (!httpResponse.startsWith("HTTP/")) {
+            throw new IOException("Invalid batch response part");
+        }
+
+        int statusLineEnd = httpResponse.indexOf(Constants.HTTP_NEW_LINE);
+        String statusLine = statusLineEnd == -1 ? httpResponse : httpResponse.substring(0, statusLineEnd);
+
+        String[] statusParts = statusLine.split(" ");
+        if (statusParts.length < 2) {
+            throw new IOException("Invalid batch response status line: " + statusLine);
+        }
+        int status = Integer.parseInt(statusParts[1].trim());
+
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        byte[] body = new byte[0];
+
+        if (statusLineEnd != -1) {
+            // prefix the rest with a new line so a response without headers is handled like any other
+            String rest = httpResponse.substring(statusLineEnd);
+            int headersEnd = rest.indexOf("\r\n\r\n");
+            String headerBlock = headersEnd == -1 ? rest : rest.substring(0, headersEnd);
+
+            for (String line : headerBlock.split(Constants.HTTP_NEW_LINE)) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    String name = line.substring(0, colon).trim();
+                    List<String> values = headers.get(name);
+                    if (values == null) {
+                        values = new ArrayList<String>();
+                        headers.put(name, values);
+                    }
+                    values.add(line.substring(colon + 1).trim());
+                }
+            }
+
+            if (headersEnd != -1) {
+                body = rest.substring(headersEnd + 4).getBytes(ISO_8859_1);
+            }
+        }
+
+        ByteArrayInputStream stream = new ByteArrayInputStream(body);
+        return new ResponseImpl(stream, status, headers, stream);
+    }
+
+    /**
+     * Gets the Content-ID from the MIME headers of a change set response part.
+     */
+    private static String getContentId(String part) {
+        int mimeHeadersEnd = part.indexOf("\r\n\r\n");
+        if (mimeHeadersEnd == -1) {
+            return null;
+        }
+
+        String contentId = getPartHeader(part.substring(0, mimeHeadersEnd), "Content-ID");
+        if (contentId != null && contentId.startsWith("<") && contentId.endsWith(">") && contentId.length() > 1) {
+            contentId = contentId.substring(1, contentId.length() - 1);
+        }
+
+        return contentId;
+    }
+
+    private static String getPartHeader(String headerBlock, String name) {
+        for (String line : headerBlock.split(Constants.HTTP_NEW_LINE)) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return line.substring(colon + 1).trim();
+            }
+        }
+
+        return null;
+    }
+
+    private static String getBoundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.US).startsWith(Constants.MULTIPART_MIXED_CONTENT_TYPE)) {
+            return null;
+        }
+
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.US).startsWith("boundary=")) {
+                String boundary = trimmed.substring("boundary=".length());
+                if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() > 1) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary;
+            }
+        }
+
+        return null;
+    }
+
+    private static void failAll(List<BatchGroup> groups, Throwable t) {
+        for (BatchGroup group : groups) {
+            failAll(group, t);
+        }
+    }
+
+    private static void failAll(BatchGroup group, Throwable t) {
+        for (BatchPart part : group.parts) {
+            part.future.setException(t);
+        }
+    }
+
+    private static class BatchGroup {
+        final boolean changeSet;
+        final List<BatchPart> parts = new ArrayList<BatchPart>();
+
+        BatchGroup(boolean changeSet) {
+            this.changeSet = changeSet;
+        }
+    }
+
+    private static class BatchPart {
+        final Request request;
+        final SettableFuture<Response> future = SettableFuture.create();
+        // set when the part is written in a change set
+        String contentId = null;
+
+        BatchPart(Request request) {
+            this.request = request;
+        }
+    }
+}
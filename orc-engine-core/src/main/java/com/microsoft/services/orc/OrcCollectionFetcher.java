@@ -13,9 +13,10 @@ import com.microsoft.services.orc.interfaces.Request;
 
 import java.util.List;
 
-import static com.microsoft.services.orc.Helpers.addCustomParametersToRequest;
+import static com.microsoft.services.orc.Helpers.addCustomParametersToRequest;
 import static com.microsoft.services.orc.Helpers.transformToEntityListenableFuture;
 import static com.microsoft.services.orc.Helpers.transformToStringListenableFuture;
+import static com.microsoft.services.orc.Helpers.urlEncodeCached;
 
 /**
  * The type OrcCollectionFetcher.
@@ -170,7 +171,7 @@ public class OrcCollectionFetcher<TEntity, TFetcher extends OrcEntityFetcher, TO
         } else {
             setSelectorUrl(request.getUrl(), urlComponent, selectedId);
         }
-        addCustomParametersToRequest(request, getParameters(), getHeaders());
+        addCustomParametersToRequest(request, getParameters(), getHeaders());
         return parent.oDataExecute(request);
     }
 
@@ -181,7 +182,7 @@ public class OrcCollectionFetcher<TEntity, TFetcher extends OrcEntityFetcher, TO
      */
     @Override
     public ListenableFuture<List<TEntity>> read() {
-        return Helpers.transformToEntityListListenableFuture(readRaw(), this.clazz, getResolver());
+        return Helpers.transformResponseToEntityListListenableFuture(readStreamed(), this.clazz, getResolver());
     }
 
     /**
@@ -194,6 +195,34 @@ public class OrcCollectionFetcher<TEntity, TFetcher extends OrcEntityFetcher, TO
         return super.readRaw();
     }
 
+    /**
+     * Reads all the pages of the collection, following @odata.nextLink while iterating.
+     * The next page is requested while the current one is being consumed.
+     *
+     * @return the paged collection
+     */
+    public PagedCollection<TEntity> readAll() {
+        return readAll(1);
+    }
+
+    /**
+     * Reads all the pages of the collection, following @odata.nextLink while iterating.
+     * Iterating blocks until the page being consumed is available; a failed page is
+     * reported as a RuntimeException, by every later call of the iterator. The iterators are
+     * {@link com.microsoft.services.orc.interfaces.CloseableIterator}s, callers must close
+     * them when the iteration stops before the end, so the pages requested ahead are cancelled.
+     *
+     * @param prefetchPages the number of pages requested ahead of the page being consumed
+     * @return the paged collection
+     */
+    public PagedCollection<TEntity> readAll(int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages");
+        }
+
+        return new PagedCollection<TEntity>(this, prefetchPages);
+    }
+
     /**
      * Add listenable future.
      *
@@ -294,6 +323,6 @@ public class OrcCollectionFetcher<TEntity, TFetcher extends OrcEntityFetcher, TO
             url.addQueryStringParameter("$orderby", orderBy);
         }
 
-        url.prependPathComponent(urlComponent);
+        url.prependEncodedPathComponent(urlEncodeCached(urlComponent));
     }
 }
\ No newline at end of file
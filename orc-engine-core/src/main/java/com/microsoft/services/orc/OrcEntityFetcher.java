@@ -16,9 +16,11 @@ import com.microsoft.services.orc.interfaces.Request;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.microsoft.services.orc.Helpers.addCustomParametersToRequest;
+import static com.microsoft.services.orc.Helpers.transformResponseToEntityListenableFuture;
 import static com.microsoft.services.orc.Helpers.transformToEntityListenableFuture;
 import static com.microsoft.services.orc.Helpers.transformToStringListenableFuture;
 import static com.microsoft.services.orc.Helpers.transformToVoidListenableFuture;
+import static com.microsoft.services.orc.Helpers.urlEncodeCached;
 
 /**
  * The type OrcEntityFetcher.
@@ -65,7 +67,7 @@ public abstract class OrcEntityFetcher<TEntity extends ODataBaseEntity, TOperati
             orcURL.addQueryStringParameter("$expand", expand);
         }
 
-        orcURL.prependPathComponent(urlComponent);
+        orcURL.prependEncodedPathComponent(urlEncodeCached(urlComponent));
 
         addCustomParametersToRequest(request, getParameters(), getHeaders());
         return parent.oDataExecute(request);
@@ -142,7 +144,7 @@ public abstract class OrcEntityFetcher<TEntity extends ODataBaseEntity, TOperati
      * @return the listenable future
      */
     public ListenableFuture<TEntity> read() {
-        return transformToEntityListenableFuture(readRaw(), this.clazz, getResolver());
+        return transformResponseToEntityListenableFuture(readStreamed(), this.clazz, getResolver());
     }
 
     /**
@@ -96,4 +96,8 @@ public abstract class OrcExecutable {
     protected void log (String content, LogLevel logLevel) {
         getResolver().getLogger().log(content, logLevel);
     }
+
+    protected void log (LogLevel logLevel, String format, Object... args) {
+        getResolver().getLogger().log(logLevel, format, args);
+    }
 }
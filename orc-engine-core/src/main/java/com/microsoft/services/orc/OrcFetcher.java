@@ -10,6 +10,9 @@ import com.microsoft.services.orc.interfaces.OrcResponse;
 import com.microsoft.services.orc.interfaces.OrcURL;
 import com.microsoft.services.orc.interfaces.Request;
 
+import static com.microsoft.services.orc.Helpers.urlEncode;
+import static com.microsoft.services.orc.Helpers.urlEncodeCached;
+
 /**
  * The type O data fetcher.
  *
@@ -62,6 +65,19 @@ public abstract class OrcFetcher<TEntity> extends OrcExecutable {
     }
 
 
+    /**
+     * Reads, leaving the response content in the response stream so it can be deserialized
+     * without intermediate copies. The caller must close the response.
+     *
+     * @return the listenable future
+     */
+    protected ListenableFuture<OrcResponse> readStreamed() {
+        Request request = getResolver().createRequest();
+        request.setVerb(HttpVerb.GET);
+        request.addOption(Request.DEFER_RESPONSE_CONTENT, "true");
+        return oDataExecute(request);
+    }
+
     /**
      * Add byte array result callback.
      *
@@ -98,7 +114,7 @@ public abstract class OrcFetcher<TEntity> extends OrcExecutable {
      * @param selectedId   the selected id
      */
     protected void setSelectorUrl(OrcURL url, String urlComponent, String selectedId) {
-        String selector = "('" + selectedId + "')";
-        url.prependPathComponent(urlComponent + selector);
+        // only the id changes between requests, the url component encoding is cached
+        url.prependEncodedPathComponent(urlEncodeCached(urlComponent) + "('" + urlEncode(selectedId) + "')");
     }
 }
@@ -6,16 +6,22 @@
 package com.microsoft.services.orc;
 
 import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.impl.http.FileChannelInputStream;
 import com.microsoft.services.orc.interfaces.HttpVerb;
 import com.microsoft.services.orc.interfaces.OrcResponse;
 import com.microsoft.services.orc.interfaces.OrcURL;
 import com.microsoft.services.orc.interfaces.Request;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 import static com.microsoft.services.orc.Helpers.transformToVoidListenableFuture;
 
@@ -109,6 +115,117 @@ public abstract class OrcMediaEntityFetcher<TEntity extends ODataBaseEntity, TOp
         return transformToVoidListenableFuture(future);
     }
 
+    /**
+     * Puts content read from a region of a file channel. The region is streamed from the file
+     * with positional reads, without loading it in memory. The channel is not closed.
+     *
+     * @param channel the file channel
+     * @param position the position of the first byte to send
+     * @param count the number of bytes to send
+     * @return the listenable future
+     */
+    public ListenableFuture<Void> putContent(FileChannel channel, long position, long count) {
+        Request request = getResolver().createRequest();
+        request.setStreamedContent(new FileChannelInputStream(channel, position, count), count);
+        request.setVerb(HttpVerb.PUT);
+        OrcURL url = request.getUrl();
+        url.appendPathComponent("$value");
+
+        ListenableFuture<OrcResponse> future = oDataExecute(request);
+
+        return transformToVoidListenableFuture(future);
+    }
+
+    /**
+     * Puts the content of a file, see {@link #putContent(FileChannel, long, long)}.
+     *
+     * @param file the file
+     * @return the listenable future
+     */
+    public ListenableFuture<Void> putContent(File file) {
+        final FileChannel channel;
+        try {
+            channel = new FileInputStream(file).getChannel();
+        } catch (IOException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+
+        ListenableFuture<Void> future;
+        try {
+            future = putContent(channel, 0, channel.size());
+        } catch (IOException e) {
+            closeQuietly(channel);
+            return Futures.immediateFailedFuture(e);
+        }
+
+        Futures.addCallback(future, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                closeQuietly(channel);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                closeQuietly(channel);
+            }
+        });
+
+        return future;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Creates a resumable upload of a file, sent in ranges. The service must accept partial
+     * content, see {@link ChunkedUpload}. Call {@link ChunkedUpload#start()}
+     * once the upload is configured.
+     *
+     * @param file the file to upload
+     * @return the upload
+     */
+    public ChunkedUpload createUpload(File file) {
+        return new ChunkedUpload(this, file);
+    }
+
+    /**
+     * Creates a resumable upload of a byte array, sent in ranges. The service must accept partial
+     * content, see {@link ChunkedUpload}. Call {@link ChunkedUpload#start()}
+     * once the upload is configured.
+     *
+     * @param content the content to upload
+     * @return the upload
+     */
+    public ChunkedUpload createUpload(byte[] content) {
+        return new ChunkedUpload(this, content);
+    }
+
+    /**
+     * Creates a resumable download of the content into a file, read in concurrent ranges.
+     * Call {@link ChunkedDownload#start()} once the download is configured.
+     *
+     * @param file the file, created or overwritten
+     * @return the download
+     */
+    public ChunkedDownload createDownload(File file) {
+        return new ChunkedDownload(this, file);
+    }
+
+    /**
+     * Creates a resumable download of the content into a channel, read in concurrent ranges.
+     * Call {@link ChunkedDownload#start()} once the download is configured.
+     *
+     * @param channel the channel, opened for writing, it is not closed
+     * @return the download
+     */
+    public ChunkedDownload createDownload(FileChannel channel) {
+        return new ChunkedDownload(this, channel);
+    }
+
     public class MediaEntityInputStream extends InputStream {
         private InputStream internalStream;
         private OrcResponse response;
@@ -11,6 +11,7 @@ import com.microsoft.services.orc.interfaces.OrcResponse;
 import com.microsoft.services.orc.interfaces.Request;
 
 import static com.microsoft.services.orc.Helpers.addCustomParametersToRequest;
+import static com.microsoft.services.orc.Helpers.urlEncodeCached;
 
 /**
  * The type OrcOperations.
@@ -32,7 +33,7 @@ public abstract class OrcOperations extends OrcExecutable {
 
     @Override
     protected ListenableFuture<OrcResponse> oDataExecute(Request request) {
-        request.getUrl().prependPathComponent(urlComponent);
+        request.getUrl().prependEncodedPathComponent(urlEncodeCached(urlComponent));
         addCustomParametersToRequest(request, getParameters(), getHeaders());
         return parent.oDataExecute(request);
     }
@@ -1,16 +1,27 @@
 package com.microsoft.services.orc;
 
+import com.google.common.io.CountingInputStream;
+import com.microsoft.services.orc.interfaces.ContentCodec;
 import com.microsoft.services.orc.interfaces.OrcResponse;
+import com.microsoft.services.orc.interfaces.RequestMetrics;
 import com.microsoft.services.orc.interfaces.Response;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 class OrcResponseImpl implements OrcResponse {
 
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MAX_PRESIZED_LENGTH = 64 * 1024 * 1024;
+
     private Response response;
     private byte[] payload = null;
+    private String metricsKey = null;
+    private RequestMetrics metrics = null;
+    private CountingInputStream encodedStream = null;
+    private CountingInputStream decodedStream = null;
 
     public OrcResponseImpl(Response response) {
         this.response = response;
@@ -19,7 +30,13 @@ class OrcResponseImpl implements OrcResponse {
     @Override
     public byte[] getPayload() throws IOException {
         if (payload == null) {
-            payload = readAllBytes(this.response.getStream());
+            // the announced length is the encoded length, it can't size the decoded content
+            long expectedLength = decodedStream == null ? getContentLength() : -1;
+            payload = readAllBytes(getContentStream(), expectedLength);
+            if (decodedStream != null) {
+                // releases the decoder, the content has been read
+                decodedStream.close();
+            }
         }
         return this.payload;
     }
@@ -31,29 +48,158 @@ class OrcResponseImpl implements OrcResponse {
 
     @Override
     public InputStream openStreamedResponse() {
-        return this.response.getStream();
+        if (payload != null) {
+            // the stream was already consumed to read the payload
+            return new ByteArrayInputStream(payload);
+        }
+
+        return getContentStream();
     }
 
     @Override
     public void closeStreamedResponse() throws IOException{
+        if (decodedStream != null) {
+            if (payload == null && metrics != null) {
+                // the content was read by the caller, what was read is reported once
+                metrics.recordCompression(metricsKey, decodedStream.getCount(), encodedStream.getCount());
+                metrics = null;
+            }
+
+            try {
+                decodedStream.close();
+            } catch (IOException ignored) {
+            }
+        }
         this.response.close();
     }
 
+    /**
+     * Decodes the content as it is read, for a response with a Content-Encoding.
+     *
+     * @param codec the codec of the content coding
+     * @throws IOException if the start of the content can't be read or is invalid
+     */
+    void decodeContent(ContentCodec codec) throws IOException {
+        InputStream stream = this.response.getStream();
+        if (stream != null) {
+            encodedStream = new CountingInputStream(stream);
+            decodedStream = new CountingInputStream(codec.decode(encodedStream));
+        }
+    }
+
+    /**
+     * Checks if the content is decoded.
+     *
+     * @return true if the response has a Content-Encoding that is decoded
+     */
+    boolean isContentDecoded() {
+        return decodedStream != null;
+    }
+
+    /**
+     * Gets the number of encoded bytes read so far.
+     *
+     * @return the encoded bytes, or -1 if the content is not decoded
+     */
+    long getEncodedBytesRead() {
+        return encodedStream == null ? -1 : encodedStream.getCount();
+    }
+
+    private InputStream getContentStream() {
+        return decodedStream != null ? decodedStream : this.response.getStream();
+    }
+
+    /**
+     * Gets the key the request is reported under to the request metrics.
+     *
+     * @return the metrics key
+     */
+    String getMetricsKey() {
+        return metricsKey;
+    }
+
+    /**
+     * Sets the key the request is reported under to the request metrics.
+     *
+     * @param metricsKey the metrics key
+     */
+    void setMetricsKey(String metricsKey) {
+        this.metricsKey = metricsKey;
+    }
+
+    /**
+     * Sets the request metrics the decoding of a streamed content is reported to.
+     *
+     * @param metrics the request metrics
+     */
+    void setRequestMetrics(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the content length announced by the server.
+     *
+     * @return the content length, or -1 if unknown
+     */
+    long getContentLength() {
+        String contentLength = Helpers.getHeaderValue(this.response, Constants.CONTENT_LENGTH_HEADER);
+        if (contentLength == null) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Read all bytes.
      *
      * @param stream the stream
+     * @param expectedLength the content length announced by the server, or -1 if unknown
      * @return the byte [ ]
      * @throws java.io.IOException the iO exception
      */
-    private static byte[] readAllBytes(InputStream stream) throws IOException {
+    private static byte[] readAllBytes(InputStream stream, long expectedLength) throws IOException {
         if (stream == null) {
             return new byte[0];
         }
 
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        if (expectedLength >= 0 && expectedLength <= MAX_PRESIZED_LENGTH) {
+            // read straight into an array of the announced size, without an intermediate copy
+            byte[] data = new byte[(int) expectedLength];
+            int offset = 0;
+            int nRead;
+            while (offset < data.length && (nRead = stream.read(data, offset, data.length - offset)) != -1) {
+                offset += nRead;
+            }
+
+            if (offset < data.length) {
+                byte[] truncated = new byte[offset];
+                System.arraycopy(data, 0, truncated, 0, offset);
+                return truncated;
+            }
+
+            int next = stream.read();
+            if (next == -1) {
+                return data;
+            }
+
+            // the announced length was wrong, keep what was read and continue
+            ByteArrayOutputStream os = new ByteArrayOutputStream(data.length + BUFFER_SIZE);
+            os.write(data, 0, data.length);
+            os.write(next);
+            return readAllBytes(stream, os);
+        }
+
+        return readAllBytes(stream, new ByteArrayOutputStream(BUFFER_SIZE));
+    }
+
+    private static byte[] readAllBytes(InputStream stream, ByteArrayOutputStream os) throws IOException {
         int nRead;
-        byte[] data = new byte[1024];
+        byte[] data = new byte[BUFFER_SIZE];
 
         while ((nRead = stream.read(data, 0, data.length)) != -1) {
             os.write(data, 0, nRead);
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.impl.AbsoluteOrcURL;
+import com.microsoft.services.orc.interfaces.CloseableIterator;
+import com.microsoft.services.orc.interfaces.DependencyResolver;
+import com.microsoft.services.orc.interfaces.HttpVerb;
+import com.microsoft.services.orc.interfaces.LogLevel;
+import com.microsoft.services.orc.interfaces.OrcResponse;
+import com.microsoft.services.orc.interfaces.Request;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A collection read page by page, following @odata.nextLink as the items are consumed.
+ * Only the pages being consumed or prefetched are kept in memory.
+ * <p/>
+ * Its iterators must be closed when the iteration stops before the end, e.g. when
+ * breaking out of a for-each loop, so the pages requested ahead are cancelled.
+ *
+ * @param <TEntity> the type parameter
+ */
+public class PagedCollection<TEntity> implements Iterable<TEntity> {
+
+    private final OrcCollectionFetcher<TEntity, ?, ?> fetcher;
+    private final int prefetchPages;
+
+    /**
+     * Instantiates a new PagedCollection.
+     *
+     * @param fetcher the fetcher that reads the first page
+     * @param prefetchPages the number of pages requested ahead of the page being consumed
+     */
+    PagedCollection(OrcCollectionFetcher<TEntity, ?, ?> fetcher, int prefetchPages) {
+        this.fetcher = fetcher;
+        this.prefetchPages = prefetchPages;
+    }
+
+    /**
+     * Gets a new iterator over the items of all the pages. It must be closed if it is
+     * not iterated to the end.
+     *
+     * @return the closeable iterator
+     */
+    @Override
+    public CloseableIterator<TEntity> iterator() {
+        return new PageIterator();
+    }
+
+    private ListenableFuture<Page<TEntity>> readPage(String nextLink) {
+        final DependencyResolver resolver = fetcher.getResolver();
+
+        Request request = resolver.createRequest();
+        request.setVerb(HttpVerb.GET);
+        request.addOption(Request.DEFER_RESPONSE_CONTENT, "true");
+        if (nextLink != null) {
+            request.setUrl(new AbsoluteOrcURL(nextLink));
+        }
+
+        ListenableFuture<OrcResponse> future = fetcher.oDataExecute(request);
+
+        return Futures.transform(future, new AsyncFunction<OrcResponse, Page<TEntity>>() {
+            @Override
+            public ListenableFuture<Page<TEntity>> apply(OrcResponse response) throws Exception {
+                SettableFuture<Page<TEntity>> result = SettableFuture.create();
+                try {
+                    resolver.getLogger().log("Entity collection page Deserialization Started", LogLevel.VERBOSE);
+                    Map<String, String> annotations = new HashMap<String, String>();
+                    long started = System.nanoTime();
+                    List<TEntity> list = resolver.getJsonSerializer().deserializeList(
+                            Helpers.openResponseReader(response), fetcher.clazz, annotations);
+                    Helpers.recordDeserialization(resolver, response, started);
+                    resolver.getLogger().log("Entity collection page Deserialization Finished", LogLevel.VERBOSE);
+
+                    result.set(new Page<TEntity>(list, annotations.get(Constants.ODATA_NEXT_LINK_JSON_PROPERTY)));
+                } catch (Throwable t) {
+                    result.setException(t);
+                } finally {
+                    Helpers.closeResponse(response);
+                }
+
+                return result;
+            }
+        });
+    }
+
+    private static class Page<TEntity> {
+        final List<TEntity> items;
+        final String nextLink;
+        final AtomicBoolean nextRequested = new AtomicBoolean(false);
+
+        Page(List<TEntity> items, String nextLink) {
+            this.items = items;
+            this.nextLink = nextLink;
+        }
+    }
+
+    /**
+     * Iterates the pages. Closing it, or a failed page, cancels the pages requested ahead.
+     */
+    private class PageIterator implements CloseableIterator<TEntity> {
+
+        // pages requested but not consumed yet, in order
+        private final LinkedList<ListenableFuture<Page<TEntity>>> pending = new LinkedList<ListenableFuture<Page<TEntity>>>();
+        private Page<TEntity> currentPage = null;
+        private Iterator<TEntity> currentItems = null;
+        private boolean started = false;
+        private RuntimeException failure = null;
+        // guarded by pending, no page is requested once closed
+        private boolean closed = false;
+
+        @Override
+        public boolean hasNext() {
+            if (failure != null) {
+                // the failed page is reported again, not as the end of the collection
+                throw failure;
+            }
+
+            if (!started) {
+                started = true;
+                enqueue(readPage(null));
+            }
+
+            while (currentItems == null || !currentItems.hasNext()) {
+                if (currentPage != null) {
+                    // without prefetch the next page is only requested once this one is exhausted
+                    requestNext(currentPage);
+                }
+
+                ListenableFuture<Page<TEntity>> future;
+                synchronized (pending) {
+                    future = pending.poll();
+                }
+
+                if (future == null) {
+                    return false;
+                }
+
+                try {
+                    currentPage = getPage(future);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    currentPage = null;
+                    currentItems = null;
+                    cancelPending();
+                    throw e;
+                }
+                currentItems = currentPage.items.iterator();
+
+                if (prefetchPages > 0) {
+                    requestNext(currentPage);
+                    prefetch();
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public TEntity next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return currentItems.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Stops the iteration and cancels the pages requested ahead.
+         */
+        @Override
+        public void close() {
+            started = true;
+            currentPage = null;
+            currentItems = null;
+            cancelPending();
+        }
+
+        private void cancelPending() {
+            List<ListenableFuture<Page<TEntity>>> cancelled;
+            synchronized (pending) {
+                closed = true;
+                cancelled = new ArrayList<ListenableFuture<Page<TEntity>>>(pending);
+                pending.clear();
+            }
+
+            for (ListenableFuture<Page<TEntity>> future : cancelled) {
+                future.cancel(false);
+            }
+        }
+
+        private void requestNext(Page<TEntity> page) {
+            synchronized (pending) {
+                if (closed) {
+                    return;
+                }
+            }
+
+            if (page.nextLink != null && page.nextRequested.compareAndSet(false, true)) {
+                enqueue(readPage(page.nextLink));
+            }
+        }
+
+        private void enqueue(ListenableFuture<Page<TEntity>> future) {
+            synchronized (pending) {
+                if (closed) {
+                    // requested while the iterator was being closed
+                    future.cancel(false);
+                    return;
+                }
+                pending.add(future);
+            }
+
+            Futures.addCallback(future, new FutureCallback<Page<TEntity>>() {
+                @Override
+                public void onSuccess(Page<TEntity> page) {
+                    prefetch();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                }
+            });
+        }
+
+        private void prefetch() {
+            ListenableFuture<Page<TEntity>> last;
+            synchronized (pending) {
+                if (pending.size() >= prefetchPages) {
+                    return;
+                }
+
+                last = pending.peekLast();
+            }
+
+            if (last != null && last.isDone()) {
+                try {
+                    requestNext(last.get());
+                } catch (Throwable ignored) {
+                    // the failure is reported when the page is consumed
+                }
+            }
+        }
+
+        private Page<TEntity> getPage(ListenableFuture<Page<TEntity>> future) {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
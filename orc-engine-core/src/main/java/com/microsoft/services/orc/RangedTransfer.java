@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.interfaces.LogLevel;
+import com.microsoft.services.orc.interfaces.TransferProgressListener;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A resumable transfer of the content of a media entity, split in ranges. Several ranges
+ * are transferred concurrently, a range that fails is transferred again up to the max retries,
+ * and {@link #resume()} only transfers the ranges that were not completed.
+ *
+ * @param <T> the transfer type, returned by the setters
+ */
+public abstract class RangedTransfer<T extends RangedTransfer<T>> {
+
+    /**
+     * The default range size, 4 MB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The default number of ranges transferred at the same time.
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /**
+     * The default number of retries of a range.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /**
+     * The media entity fetcher.
+     */
+    protected final OrcMediaEntityFetcher<?, ?> fetcher;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private volatile TransferProgressListener progressListener = null;
+
+    private volatile long length;
+    private final AtomicLong bytesTransferred = new AtomicLong(0);
+
+    // transfer state, guarded by this
+    private boolean[] completedRanges = null;
+    private int[] attempts = null;
+    private final LinkedList<Integer> pendingRanges = new LinkedList<Integer>();
+    private int inFlight = 0;
+    private boolean dispatching = false;
+    private boolean restart = false;
+    private Throwable failure = null;
+    private SettableFuture<Void> result = null;
+
+    /**
+     * Instantiates a new RangedTransfer.
+     *
+     * @param fetcher the media entity fetcher
+     * @param length the length of the content, -1 if it is only known once the transfer has started
+     */
+    RangedTransfer(OrcMediaEntityFetcher<?, ?> fetcher, long length) {
+        this.fetcher = fetcher;
+        this.length = length;
+    }
+
+    /**
+     * Sets the range size. Can't be changed once the transfer has started.
+     *
+     * @param chunkSize the number of bytes transferred by each request
+     * @return this transfer
+     */
+    public synchronized T setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize");
+        }
+        if (completedRanges != null || result != null) {
+            throw new IllegalStateException("The transfer has started");
+        }
+
+        this.chunkSize = chunkSize;
+        return self();
+    }
+
+    /**
+     * Sets the number of ranges transferred at the same time.
+     *
+     * @param concurrency the number of concurrent requests
+     * @return this transfer
+     */
+    public synchronized T setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency");
+        }
+
+        this.concurrency = concurrency;
+        return self();
+    }
+
+    /**
+     * Sets the number of times a failed range is transferred again before the transfer fails.
+     *
+     * @param maxRetries the max retries
+     * @return this transfer
+     */
+    public synchronized T setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries");
+        }
+
+        this.maxRetries = maxRetries;
+        return self();
+    }
+
+    /**
+     * Sets the progress listener.
+     *
+     * @param progressListener the listener, may be null
+     * @return this transfer
+     */
+    public T setProgressListener(TransferProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return self();
+    }
+
+    /**
+     * Gets the length of the content.
+     *
+     * @return the length, or -1 if it is not known yet
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the number of bytes of the completed ranges.
+     *
+     * @return the bytes transferred
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * Checks if every range has been transferred.
+     *
+     * @return true if the transfer is complete
+     */
+    public synchronized boolean isComplete() {
+        if (completedRanges == null) {
+            return false;
+        }
+
+        for (boolean completed : completedRanges) {
+            if (!completed) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets which ranges have been transferred, by range index, so the state of the transfer can
+     * be kept and restored by another instance of the same transfer.
+     *
+     * @return a copy of the flags, or null if the content is not split in ranges yet
+     */
+    public synchronized boolean[] getCompletedRanges() {
+        return completedRanges == null ? null : completedRanges.clone();
+    }
+
+    /**
+     * Starts the transfer.
+     *
+     * @return the future, completed when every range has been transferred, or failed
+     * when a range still fails after the max retries
+     */
+    public ListenableFuture<Void> start() {
+        SettableFuture<Void> future;
+        boolean prepared;
+
+        synchronized (this) {
+            if (result != null && !result.isDone()) {
+                throw new IllegalStateException("The transfer is running");
+            }
+
+            if (restart) {
+                // the content changed, the completed ranges are of the previous content
+                restart = false;
+                completedRanges = null;
+                bytesTransferred.set(0);
+            }
+
+            failure = null;
+            result = SettableFuture.create();
+            future = result;
+            prepared = completedRanges != null;
+        }
+
+        if (prepared) {
+            transferRanges();
+        } else {
+            prepare();
+        }
+
+        return future;
+    }
+
+    /**
+     * Resumes a failed transfer, transferring again only the ranges that were not completed.
+     *
+     * @return the future, as returned by {@link #start()}
+     */
+    public ListenableFuture<Void> resume() {
+        return start();
+    }
+
+    /**
+     * Called by the first start, before any range is transferred. It must call
+     * {@link #setRanges(long, boolean)} then {@link #transferRanges()}, or {@link #fail(Throwable)}.
+     * The default splits the length known at construction.
+     */
+    protected void prepare() {
+        setRanges(length, false);
+        transferRanges();
+    }
+
+    /**
+     * Transfers a range. It must call {@link #rangeCompleted(int)} or {@link #rangeFailed(int, Throwable)}
+     * once the range has been transferred, from any thread.
+     *
+     * @param range the range index
+     * @param start the offset of the first byte of the range
+     * @param count the number of bytes of the range
+     */
+    protected abstract void transferRange(int range, long start, long count);
+
+    /**
+     * Splits the content in ranges.
+     *
+     * @param contentLength the length of the content
+     * @param completed true if the whole content has already been transferred
+     */
+    protected final synchronized void setRanges(long contentLength, boolean completed) {
+        length = contentLength;
+
+        // an empty content is still transferred, as a single empty range
+        int rangeCount = (int) Math.max(1, (contentLength + chunkSize - 1) / chunkSize);
+        completedRanges = new boolean[rangeCount];
+        if (completed) {
+            Arrays.fill(completedRanges, true);
+            bytesTransferred.set(contentLength);
+        }
+    }
+
+    /**
+     * Splits the content in ranges, some of them transferred by a previous instance of the
+     * transfer. The length and chunk size must be the ones of that instance.
+     *
+     * @param completed the flags returned by {@link #getCompletedRanges()}
+     */
+    protected final synchronized void restoreRanges(boolean[] completed) {
+        if (completed == null) {
+            throw new IllegalArgumentException("completed");
+        }
+        if (completedRanges != null || result != null) {
+            throw new IllegalStateException("The transfer has started");
+        }
+        if (length < 0) {
+            throw new IllegalStateException("The length of the content is not known");
+        }
+
+        int rangeCount = (int) Math.max(1, (length + chunkSize - 1) / chunkSize);
+        if (completed.length != rangeCount) {
+            throw new IllegalArgumentException("The content has " + rangeCount + " ranges, not " + completed.length);
+        }
+
+        completedRanges = completed.clone();
+        long transferred = 0;
+        for (int i = 0; i < completedRanges.length; i++) {
+            if (completedRanges[i]) {
+                transferred += getRangeCount(i);
+            }
+        }
+        bytesTransferred.set(transferred);
+    }
+
+    /**
+     * Marks the first range as transferred, when it was already transferred by {@link #prepare()}.
+     */
+    protected final void firstRangeCompleted() {
+        long count;
+        synchronized (this) {
+            completedRanges[0] = true;
+            count = getRangeCount(0);
+        }
+
+        progress(count);
+    }
+
+    /**
+     * Gets the size of the ranges.
+     *
+     * @return the chunk size
+     */
+    protected final synchronized int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Transfers the ranges that are not completed yet.
+     */
+    protected final void transferRanges() {
+        SettableFuture<Void> finished = null;
+
+        synchronized (this) {
+            attempts = new int[completedRanges.length];
+            pendingRanges.clear();
+            for (int i = 0; i < completedRanges.length; i++) {
+                if (!completedRanges[i]) {
+                    pendingRanges.add(i);
+                }
+            }
+
+            if (pendingRanges.isEmpty()) {
+                finished = result;
+            }
+        }
+
+        if (finished != null) {
+            finished.set(null);
+        } else {
+            dispatch();
+        }
+    }
+
+    /**
+     * Fails the transfer before the ranges are transferred.
+     *
+     * @param t the cause
+     */
+    protected final void fail(Throwable t) {
+        SettableFuture<Void> finished;
+        synchronized (this) {
+            finished = result;
+        }
+
+        finished.setException(t);
+    }
+
+    /**
+     * Called when a range has been transferred.
+     *
+     * @param range the range index
+     */
+    protected final void rangeCompleted(int range) {
+        SettableFuture<Void> finished = null;
+        Throwable finishedWith = null;
+        long count;
+
+        synchronized (this) {
+            inFlight--;
+            completedRanges[range] = true;
+            count = getRangeCount(range);
+
+            if (inFlight == 0 && (failure != null || pendingRanges.isEmpty())) {
+                finished = result;
+                finishedWith = failure;
+            }
+        }
+
+        progress(count);
+        finish(finished, finishedWith);
+    }
+
+    /**
+     * Called when the transfer of a range has failed.
+     *
+     * @param range the range index
+     * @param t the cause
+     */
+    protected final void rangeFailed(int range, Throwable t) {
+        SettableFuture<Void> finished = null;
+        Throwable finishedWith = null;
+        boolean retry = false;
+
+        synchronized (this) {
+            inFlight--;
+            attempts[range]++;
+
+            if (failure == null && attempts[range] <= maxRetries) {
+                pendingRanges.addFirst(range);
+                retry = true;
+            } else if (failure == null) {
+                failure = t;
+            }
+
+            // the future completes once no range is in flight, so the transfer can be resumed right away
+            if (failure != null && inFlight == 0) {
+                finished = result;
+                finishedWith = failure;
+            }
+        }
+
+        if (retry) {
+            fetcher.log(LogLevel.WARNING, "Transfer of range %d failed, retrying: %s", range, t);
+        }
+
+        finish(finished, finishedWith);
+    }
+
+    /**
+     * Called when a range can't be transferred because the content changed since the transfer
+     * started. The transfer fails without retries, and {@link #resume()} starts it over.
+     *
+     * @param range the range index
+     * @param t the cause
+     */
+    protected final void contentChanged(int range, Throwable t) {
+        SettableFuture<Void> finished = null;
+        Throwable finishedWith = null;
+
+        synchronized (this) {
+            inFlight--;
+            restart = true;
+            if (failure == null) {
+                failure = t;
+            }
+
+            if (inFlight == 0) {
+                finished = result;
+                finishedWith = failure;
+            }
+        }
+
+        finish(finished, finishedWith);
+    }
+
+    private void dispatch() {
+        synchronized (this) {
+            // ranges completed synchronously come back here, the loop picks their next range
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+        }
+
+        while (true) {
+            int range;
+            long start;
+            long count;
+            synchronized (this) {
+                if (failure != null || pendingRanges.isEmpty() || inFlight >= concurrency) {
+                    dispatching = false;
+                    return;
+                }
+
+                range = pendingRanges.poll();
+                inFlight++;
+                start = (long) range * chunkSize;
+                count = getRangeCount(range);
+            }
+
+            transferRange(range, start, count);
+        }
+    }
+
+    private long getRangeCount(int range) {
+        return Math.min(chunkSize, length - (long) range * chunkSize);
+    }
+
+    private void progress(long count) {
+        long transferred = bytesTransferred.addAndGet(count);
+        TransferProgressListener listener = progressListener;
+        if (listener != null) {
+            listener.onProgress(transferred, length);
+        }
+    }
+
+    private void finish(SettableFuture<Void> finished, Throwable finishedWith) {
+        if (finished == null) {
+            dispatch();
+        } else if (finishedWith != null) {
+            finished.setException(finishedWith);
+        } else {
+            finished.set(null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T self() {
+        return (T) this;
+    }
+}
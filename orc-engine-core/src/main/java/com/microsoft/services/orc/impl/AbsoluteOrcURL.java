@@ -0,0 +1,79 @@
+package com.microsoft.services.orc.impl;
+
+import com.microsoft.services.orc.interfaces.OrcURL;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.microsoft.services.orc.Helpers.urlDecode;
+
+/**
+ * An OrcURL for a complete link returned by the service (like @odata.nextLink).
+ * The link is sent as is: the base url, path components and query string parameters
+ * added while the request goes through the fetcher chain are ignored.
+ * The path components are still kept, so the request can be identified (e.g. in metrics).
+ */
+public class AbsoluteOrcURL implements OrcURL {
+
+    private final String url;
+    private final List<String> pathComponents = new ArrayList<String>();
+
+    /**
+     * Instantiates a new AbsoluteOrcURL.
+     *
+     * @param url the complete, already encoded url
+     */
+    public AbsoluteOrcURL(String url) {
+        if (url == null) {
+            throw new IllegalArgumentException("url");
+        }
+
+        this.url = url;
+    }
+
+    @Override
+    public void setBaseUrl(String baseUrl) {
+    }
+
+    @Override
+    public void appendPathComponent(String pathComponent) {
+        pathComponents.add(pathComponent);
+    }
+
+    @Override
+    public void prependPathComponent(String pathComponent) {
+        pathComponents.add(0, pathComponent);
+    }
+
+    @Override
+    public void prependEncodedPathComponent(String encodedPathComponent) {
+        pathComponents.add(0, urlDecode(encodedPathComponent));
+    }
+
+    @Override
+    public void addQueryStringParameter(String name, String value) {
+    }
+
+    @Override
+    public Map<String, String> getQueryStringParameters() {
+        return new HashMap<String, String>();
+    }
+
+    @Override
+    public String getBaseUrl() {
+        int queryStart = url.indexOf('?');
+        return queryStart == -1 ? url : url.substring(0, queryStart);
+    }
+
+    @Override
+    public List<String> getPathComponents() {
+        return new ArrayList<String>(pathComponents);
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
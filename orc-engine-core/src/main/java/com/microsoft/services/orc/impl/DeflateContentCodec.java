@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl;
+
+import com.microsoft.services.orc.interfaces.ContentCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The deflate content coding. Content is written in the zlib format, as the coding is defined;
+ * content read without the zlib header (raw deflate, sent by some servers) is accepted too.
+ */
+public class DeflateContentCodec implements ContentCodec {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public InputStream decode(InputStream encoded) throws IOException {
+        PushbackInputStream stream = new PushbackInputStream(encoded, 2);
+
+        byte[] header = new byte[2];
+        int read = 0;
+        while (read < header.length) {
+            int n = stream.read(header, read, header.length - read);
+            if (n == -1) {
+                break;
+            }
+            read += n;
+        }
+        stream.unread(header, 0, read);
+
+        // zlib header: compression method 8, and the header is a multiple of 31
+        boolean zlib = read == 2 && (header[0] & 0x0f) == 8
+                && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+
+        return new ReleasingInflaterInputStream(stream, new Inflater(!zlib));
+    }
+
+    @Override
+    public OutputStream encode(OutputStream target) throws IOException {
+        final Deflater deflater = new Deflater();
+
+        return new DeflaterOutputStream(target, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Releases the native memory of the inflater when closed, as a custom inflater is not
+     * released by InflaterInputStream.
+     */
+    private static class ReleasingInflaterInputStream extends InflaterInputStream {
+
+        ReleasingInflaterInputStream(InputStream in, Inflater inflater) {
+            super(in, inflater, BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+}
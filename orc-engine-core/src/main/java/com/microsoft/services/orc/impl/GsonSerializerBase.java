@@ -4,15 +4,24 @@ package com.microsoft.services.orc.impl;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.microsoft.services.orc.Constants;
 import com.microsoft.services.orc.ODataBaseEntity;
 import com.microsoft.services.orc.interfaces.JsonSerializer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
@@ -24,6 +33,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.microsoft.services.orc.Helpers.getReservedNames;
 
@@ -31,7 +41,97 @@ import static com.microsoft.services.orc.Helpers.getReservedNames;
  * The type Gson serializer.
  */
 public abstract class GsonSerializerBase implements JsonSerializer {
-    private static Map<String, Class<?>> cachedClassesFromOData = new ConcurrentHashMap<String, Class<?>>();
+    private static final int MAX_UNKNOWN_TYPES = 1024;
+
+    // OData type names resolved to classes, by package of the requested class
+    private final ConcurrentMap<String, ConcurrentMap<String, Class<?>>> typeRegistry =
+            new ConcurrentHashMap<String, ConcurrentMap<String, Class<?>>>();
+    // OData type names that resolved to no class, keyed by package and type name
+    private final ConcurrentMap<String, Boolean> unknownTypes = new ConcurrentHashMap<String, Boolean>();
+
+    private static Map<Class<?>, ParentField[]> parentFieldsCache = new ConcurrentHashMap<Class<?>, ParentField[]>();
+
+    private volatile Gson gson;
+    private final Map<Class<?>, TypeAdapter<?>> typeAdapters = new ConcurrentHashMap<Class<?>, TypeAdapter<?>>();
+    private volatile boolean parentReferencesEnabled = true;
+
+    /**
+     * Sets whether deserialized entities get their parent references. The references let
+     * a change on a nested entity or list be reported in the updated values of the entity
+     * that contains it, so it is sent on update. Read-only workloads can disable them and
+     * skip walking the deserialized graph, then call {@link #referenceParents(Object)}
+     * on the entities that are going to be modified.
+     *
+     * @param enabled true to set the parent references on deserialize (the default)
+     */
+    public void setParentReferencesEnabled(boolean enabled) {
+        this.parentReferencesEnabled = enabled;
+    }
+
+    /**
+     * Gets whether deserialized entities get their parent references.
+     *
+     * @return true if the parent references are set on deserialize
+     */
+    public boolean isParentReferencesEnabled() {
+        return parentReferencesEnabled;
+    }
+
+    /**
+     * Sets the parent references of an entity graph, or of a list of entities.
+     * Only needed for entities deserialized with the parent references disabled.
+     *
+     * @param entity the entity or list of entities
+     */
+    public void referenceParents(Object entity) {
+        referenceParents(entity, null, null);
+    }
+
+    /**
+     * Gets the Gson instance, building it on first use. Gson is thread-safe and caches
+     * its reflective type adapters, so a single instance is shared by all calls.
+     *
+     * @return the gson instance
+     */
+    protected Gson getGson() {
+        Gson result = gson;
+        if (result == null) {
+            synchronized (this) {
+                result = gson;
+                if (result == null) {
+                    result = createGson();
+                    gson = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> TypeAdapter<T> getTypeAdapter(Class<T> clazz) {
+        TypeAdapter<?> adapter = typeAdapters.get(clazz);
+        if (adapter == null) {
+            adapter = getGson().getAdapter(clazz);
+            typeAdapters.put(clazz, adapter);
+        }
+
+        return (TypeAdapter<T>) adapter;
+    }
+
+    /**
+     * Converts a JSON tree with the cached type adapter, leniently like Gson.fromJson does,
+     * where TypeAdapter.fromJsonTree reads strictly.
+     */
+    private <T> T fromJsonTree(JsonElement json, Class<T> clazz) {
+        try {
+            JsonReader reader = new JsonTreeReader(json);
+            reader.setLenient(true);
+            return getTypeAdapter(clazz).read(reader);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
 
     private Gson createGson() {
         return new GsonBuilder()
@@ -46,8 +146,7 @@ public abstract class GsonSerializerBase implements JsonSerializer {
 
     @Override
     public String serialize(Object objectToSerialize) {
-        Gson serializer = createGson();
-        JsonElement json = serializer.toJsonTree(objectToSerialize);
+        JsonElement json = getGson().toJsonTree(objectToSerialize);
         sanitizePostSerialization(json);
 
         return json.toString();
@@ -55,39 +154,37 @@ public abstract class GsonSerializerBase implements JsonSerializer {
 
     @Override
     public <E> E deserialize(String payload, Class<E> clazz) {
-        Gson serializer = createGson();
         JsonParser parser = new JsonParser();
-        JsonElement json = parser.parse(payload);
+        return deserialize(parser.parse(payload), clazz);
+    }
+
+    @Override
+    public <E> E deserialize(Reader reader, Class<E> clazz) {
+        JsonParser parser = new JsonParser();
+        return deserialize(parser.parse(reader), clazz);
+    }
+
+    private <E> E deserialize(JsonElement json, Class<E> clazz) {
         sanitizeForDeserialization(json);
 
         Package pkg = clazz.getPackage();
         Class overridenClass = getClassFromJson(json, pkg);
 
-        if (overridenClass != null) {
+        // the type named by the payload is only used if it is the expected type or a subtype
+        if (overridenClass != null && clazz.isAssignableFrom(overridenClass)) {
             clazz = overridenClass;
         }
 
-        E odataEntity = serializer.fromJson(json, clazz);
+        E odataEntity = fromJsonTree(json, clazz);
 
-        referenceParents(odataEntity, null, null);
+        if (parentReferencesEnabled) {
+            referenceParents(odataEntity, null, null);
+        }
 
         return odataEntity;
     }
 
     private void referenceParents(Object objToAnalyze, ODataBaseEntity parent, String referenceProperty)  {
-        if (objToAnalyze == null) {
-            return;
-        }
-
-        Class objClass = objToAnalyze.getClass();
-
-        if (objToAnalyze instanceof ParentReferencedList) {
-            ParentReferencedList list = (ParentReferencedList)objToAnalyze;
-
-            for (Object subObject : list) {
-                referenceParents(subObject, parent, referenceProperty);
-            }
-        }
         if (objToAnalyze instanceof List) {
             List list = (List)objToAnalyze;
 
@@ -100,18 +197,18 @@ public abstract class GsonSerializerBase implements JsonSerializer {
                 entity.setParent(parent, referenceProperty);
             }
 
-            for (Field field : getAllFields(objClass, ODataBaseEntity.class)) {
-                field.setAccessible(true);
+            for (ParentField parentField : getParentFields(entity.getClass())) {
+                Field field = parentField.field;
 
                 try {
-                    Object fieldValue = field.get(objToAnalyze);
-                    if (fieldValue instanceof List && !(fieldValue instanceof ParentReferencedList)) {
+                    Object fieldValue = field.get(entity);
+                    if (parentField.wrapsLists && fieldValue instanceof List && !(fieldValue instanceof ParentReferencedList)) {
                         List originalList = (List)fieldValue;
-                        ParentReferencedList wrapperList = new ParentReferencedList(originalList, entity, field.getName());
+                        ParentReferencedList wrapperList = new ParentReferencedList(originalList, entity, parentField.name);
                         field.set(entity, wrapperList);
                         referenceParents(wrapperList, wrapperList, null);
-                    } else {
-                        referenceParents(fieldValue, entity, field.getName());
+                    } else if (fieldValue != null) {
+                        referenceParents(fieldValue, entity, parentField.name);
                     }
 
                 } catch (IllegalAccessException e) {
@@ -120,20 +217,62 @@ public abstract class GsonSerializerBase implements JsonSerializer {
         }
     }
 
-    private Iterable<? extends Field> getAllFields(Class clazz, Class topClass) {
-        List<Field> fields = new ArrayList<Field>();
+    /**
+     * Gets the fields of the class that can reference an entity or a list of entities,
+     * up to ODataBaseEntity. The fields are looked up and made accessible once per class.
+     */
+    private static ParentField[] getParentFields(Class<?> clazz) {
+        ParentField[] fields = parentFieldsCache.get(clazz);
+        if (fields != null) {
+            return fields;
+        }
+
+        List<ParentField> found = new ArrayList<ParentField>();
+        Class<?> current = clazz;
+
+        while (current != null && current != ODataBaseEntity.class) {
+            for (Field f : current.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic() || !canReferenceEntities(f.getType())) {
+                    continue;
+                }
 
-        while (clazz != topClass) {
-            for (Field f : clazz.getDeclaredFields()) {
-                fields.add(f);
+                try {
+                    f.setAccessible(true);
+                } catch (SecurityException e) {
+                    continue;
+                }
+
+                found.add(new ParentField(f));
             }
 
-            clazz = clazz.getSuperclass();
+            current = current.getSuperclass();
         }
 
+        fields = found.toArray(new ParentField[found.size()]);
+        parentFieldsCache.put(clazz, fields);
         return fields;
     }
 
+    private static boolean canReferenceEntities(Class<?> type) {
+        // List, Collection, Object... can hold a list, entity fields (or a supertype) can hold an entity
+        return Collection.class.isAssignableFrom(type)
+                || type.isAssignableFrom(List.class)
+                || ODataBaseEntity.class.isAssignableFrom(type)
+                || type.isAssignableFrom(ODataBaseEntity.class);
+    }
+
+    private static class ParentField {
+        final Field field;
+        final String name;
+        final boolean wrapsLists;
+
+        ParentField(Field field) {
+            this.field = field;
+            this.name = field.getName();
+            this.wrapsLists = field.getType().isAssignableFrom(ParentReferencedList.class);
+        }
+    }
+
     private class ParentReferencedList<E> extends ODataBaseEntity implements List<E> { // necesito que este y que odatabaseentity implementen notifypropertychanged, para que cuando encuentra la lista pase siempre esa lista como objeto para notificar en la recursion, en vez de el odatabaseentity
 
         List<E> wrappedList;
@@ -289,34 +428,60 @@ public abstract class GsonSerializerBase implements JsonSerializer {
     }
 
     protected Class getClassFromJson(JsonElement json, Package pkg) {
-        try {
-            if (json.isJsonObject()) {
-                JsonObject jsonObject = json.getAsJsonObject();
+        if (pkg == null || !json.isJsonObject()) {
+            return null;
+        }
 
-                if (jsonObject.has(Constants.ODATA_TYPE_PROPERTY_NAME)) {
-                    String dataType = jsonObject.get(Constants.ODATA_TYPE_PROPERTY_NAME).getAsString();
-                    if (cachedClassesFromOData.containsKey(dataType)) {
-                        return cachedClassesFromOData.get(dataType);
-                    }
+        JsonElement typeElement = json.getAsJsonObject().get(Constants.ODATA_TYPE_PROPERTY_NAME);
+        if (typeElement == null || !typeElement.isJsonPrimitive()) {
+            return null;
+        }
 
-                    String[] parts = dataType.split("\\.");
-                    String className = parts[parts.length - 1];
+        String dataType = typeElement.getAsString();
 
-                    String classFullName = pkg.getName() + "." + className;
-                    Class<?> derivedClass = Class.forName(classFullName);
+        ConcurrentMap<String, Class<?>> types = typeRegistry.get(pkg.getName());
+        if (types == null) {
+            ConcurrentMap<String, Class<?>> newTypes = new ConcurrentHashMap<String, Class<?>>();
+            types = typeRegistry.putIfAbsent(pkg.getName(), newTypes);
+            if (types == null) {
+                types = newTypes;
+            }
+        }
 
-                    ODataBaseEntity instance = (ODataBaseEntity)derivedClass.newInstance();
+        Class<?> cached = types.get(dataType);
+        if (cached != null) {
+            return cached;
+        }
 
-                    Field field = ODataBaseEntity.class.getDeclaredField(Constants.ODATA_TYPE_PROPERTY_NAME);
-                    if (field != null) {
-                        field.setAccessible(true);
-                        String val = (String) field.get(instance);
-                        if (val.equals(dataType)) {
-                            cachedClassesFromOData.put(dataType, derivedClass);
-                            return derivedClass;
-                        }
-                    }
-                }
+        String unknownKey = pkg.getName() + " " + dataType;
+        if (unknownTypes.containsKey(unknownKey)) {
+            return null;
+        }
+
+        Class<?> derivedClass = resolveClass(dataType, pkg);
+        if (derivedClass != null) {
+            types.put(dataType, derivedClass);
+        } else if (unknownTypes.size() < MAX_UNKNOWN_TYPES) {
+            // unknown types are remembered too, up to a limit, as payloads can contain any type name
+            unknownTypes.putIfAbsent(unknownKey, Boolean.TRUE);
+        }
+
+        return derivedClass;
+    }
+
+    /**
+     * Resolves the class of an @odata.type from its name, without initializing or instantiating it.
+     * The namespace of the type is not checked, it is only known by the entity constructor.
+     */
+    private static Class<?> resolveClass(String dataType, Package pkg) {
+        try {
+            String className = dataType.substring(dataType.lastIndexOf('.') + 1);
+            Class<?> derivedClass = Class.forName(pkg.getName() + "." + className, false,
+                    GsonSerializerBase.class.getClassLoader());
+
+            if (ODataBaseEntity.class.isAssignableFrom(derivedClass)
+                    && !Modifier.isAbstract(derivedClass.getModifiers())) {
+                return derivedClass;
             }
         } catch (Throwable ignore) {
             // if, for any reason, the sub-class cannot be loaded, just continue and the base class will
@@ -328,28 +493,70 @@ public abstract class GsonSerializerBase implements JsonSerializer {
 
     @Override
     public <E> List<E> deserializeList(String payload, Class<E> clazz) {
-        Gson serializer = createGson();
+        return deserializeList(payload, clazz, null);
+    }
 
-        JsonParser parser = new JsonParser();
-        JsonObject json = (JsonObject) parser.parse(payload);
+    @Override
+    public <E> List<E> deserializeList(String payload, Class<E> clazz, Map<String, String> annotations) {
+        return deserializeList(new StringReader(payload), clazz, annotations);
+    }
+
+    @Override
+    public <E> List<E> deserializeList(Reader reader, Class<E> clazz, Map<String, String> annotations) {
+        try {
+            // lenient, like Gson.fromJson and JsonParser.parse
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.setLenient(true);
+            return deserializeList(jsonReader, clazz, annotations);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
 
-        JsonElement jsonArray = json.get("value");
-        sanitizeForDeserialization(jsonArray);
+    /**
+     * Deserializes the "value" array of a collection payload one entity at a time,
+     * so only the entity being converted is held as a JSON tree.
+     */
+    private <E> List<E> deserializeList(JsonReader reader, Class<E> clazz, Map<String, String> annotations) throws IOException {
+        JsonParser parser = new JsonParser();
 
         Package pkg = clazz.getPackage();
         ArrayList<E> arrayList = new ArrayList<E>();
 
-        for(JsonElement item : jsonArray.getAsJsonArray()) {
-            Class currentClass = clazz;
-            Class overridenClass = getClassFromJson(item, pkg);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+
+            if (annotations != null && name.startsWith(Constants.ODATA_ANNOTATION_PREFIX)
+                    && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                annotations.put(name, reader.nextString());
+                continue;
+            }
 
-            if (overridenClass != null) {
-                currentClass = overridenClass;
+            if (!"value".equals(name) || token != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
             }
 
-            E deserializedItem  = (E) serializer.fromJson(item, currentClass);
-            arrayList.add(deserializedItem);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                JsonElement item = parser.parse(reader);
+                sanitizeForDeserialization(item);
+
+                Class currentClass = clazz;
+                Class overridenClass = getClassFromJson(item, pkg);
+
+                if (overridenClass != null && clazz.isAssignableFrom(overridenClass)) {
+                    currentClass = overridenClass;
+                }
+
+                E deserializedItem = (E) fromJsonTree(item, currentClass);
+                arrayList.add(deserializedItem);
+            }
+            reader.endArray();
         }
+        reader.endObject();
 
         return arrayList;
     }
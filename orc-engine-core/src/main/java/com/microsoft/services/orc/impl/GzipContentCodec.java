@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl;
+
+import com.microsoft.services.orc.interfaces.ContentCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The gzip content coding.
+ */
+public class GzipContentCodec implements ContentCodec {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public InputStream decode(InputStream encoded) throws IOException {
+        return new GZIPInputStream(encoded, BUFFER_SIZE);
+    }
+
+    @Override
+    public OutputStream encode(OutputStream target) throws IOException {
+        return new GZIPOutputStream(target, BUFFER_SIZE);
+    }
+}
@@ -28,19 +28,31 @@ public abstract class LoggerBase implements Logger {
 
     @Override
     public void log(String content, LogLevel logLevel) {
-        if (!this.enabled) {
+        if (!isEnabled(logLevel)) {
             return;
         }
 
-        if ((this.logLevel & logLevel.getValue()) != logLevel.getValue()) {
+        if (content != null) {
+            print(content, logLevel);
+        }
+    }
+
+    @Override
+    public void log(LogLevel logLevel, String format, Object... args) {
+        if (!isEnabled(logLevel)) {
             return;
         }
 
-        if (content != null) {
-            print(content, logLevel);
+        if (format != null) {
+            print(String.format(format, args), logLevel);
         }
     }
 
+    @Override
+    public boolean isEnabled(LogLevel logLevel) {
+        return this.enabled && (this.logLevel & logLevel.getValue()) == logLevel.getValue();
+    }
+
     public abstract void print(String content, LogLevel logLevel);
 
 
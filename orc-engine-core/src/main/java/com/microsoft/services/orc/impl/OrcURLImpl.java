@@ -6,64 +6,86 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static com.microsoft.services.orc.Helpers.urlDecode;
 import static com.microsoft.services.orc.Helpers.urlEncode;
+import static com.microsoft.services.orc.Helpers.urlEncodeCached;
 
 /**
  * The type OrcURLImpl.
  */
 public class OrcURLImpl implements OrcURL {
 
+    private static final int MAX_CACHED_BASE_URLS = 64;
+
+    // containers use a handful of base urls, parse each of them once
+    private static final Map<String, ParsedBaseUrl> parsedBaseUrls = new ConcurrentHashMap<String, ParsedBaseUrl>();
+
     /**
      * The Base url.
      */
     String baseUrl;
     /**
-     * The Path components.
+     * The Path components, as added.
      */
     List<String> pathComponents = new ArrayList<String>();
     /**
-     * The Query string parameters.
+     * The Path components, percent-encoded.
+     */
+    List<String> encodedPathComponents = new ArrayList<String>();
+    /**
+     * The Query string parameters. Sorted, so equivalent requests get the same url.
      */
     Map<String, String> queryStringParameters = new TreeMap<String, String>();
 
+    private String url = null;
+
     @Override
     public void setBaseUrl(String baseUrl) {
-        String[] urlParts = baseUrl.split("\\?");
-
-        this.baseUrl = removeTrailingSlash(urlParts[0]);
+        ParsedBaseUrl parsed = parsedBaseUrls.get(baseUrl);
+        if (parsed == null) {
+            parsed = new ParsedBaseUrl(baseUrl);
+            if (parsedBaseUrls.size() < MAX_CACHED_BASE_URLS) {
+                parsedBaseUrls.put(baseUrl, parsed);
+            }
+        }
 
-        if (urlParts.length > 1) {
-            String[] parameters = urlParts[1].split("&");
+        this.baseUrl = parsed.baseUrl;
 
-            for (String kv : parameters) {
-                String[] parameterParts = kv.split("=");
-                String key = parameterParts[0];
-                String val = "";
-                if (parameterParts.length > 1) {
-                    val = parameterParts[1];
-                }
-
-                this.addQueryStringParameter(key, val);
-            }
+        for (int i = 0; i < parsed.parameterNames.length; i++) {
+            this.addQueryStringParameter(parsed.parameterNames[i], parsed.parameterValues[i]);
         }
+
+        this.url = null;
     }
 
     @Override
     public void appendPathComponent(String pathComponent) {
         this.pathComponents.add(pathComponent);
+        this.encodedPathComponents.add(urlEncode(pathComponent));
+        this.url = null;
     }
 
     @Override
     public void prependPathComponent(String pathComponent) {
         this.pathComponents.add(0, pathComponent);
+        this.encodedPathComponents.add(0, urlEncode(pathComponent));
+        this.url = null;
+    }
+
+    @Override
+    public void prependEncodedPathComponent(String encodedPathComponent) {
+        this.pathComponents.add(0, urlDecode(encodedPathComponent));
+        this.encodedPathComponents.add(0, encodedPathComponent);
+        this.url = null;
     }
 
     @Override
     public void addQueryStringParameter(String name, String value) {
         queryStringParameters.put(name, value);
+        this.url = null;
     }
 
     @Override
@@ -83,46 +105,46 @@ public class OrcURLImpl implements OrcURL {
 
     @Override
     public String toString() {
+        // the url is read several times per request (transport, logging, caches), build it once
+        if (this.url != null) {
+            return this.url;
+        }
 
-        StringBuilder sb = new StringBuilder();
+        int length = String.valueOf(this.baseUrl).length() + 1;
+        for (String component : this.encodedPathComponents) {
+            length += component.length() + 1;
+        }
+        for (Map.Entry<String, String> parameter : this.queryStringParameters.entrySet()) {
+            length += parameter.getKey().length() + String.valueOf(parameter.getValue()).length() + 2;
+        }
+
+        StringBuilder sb = new StringBuilder(length + 16);
 
         sb.append(this.baseUrl);
 
-        sb.append("/");
+        sb.append('/');
 
-        for (String component : this.pathComponents) {
+        for (String component : this.encodedPathComponents) {
             if (component.length() > 0) {
-                sb.append(addTrailingSlash(urlEncode(component)));
+                sb.append(component);
+                if (component.charAt(component.length() - 1) != '/') {
+                    sb.append('/');
+                }
             }
         }
 
-        Set<String> parameterNames = this.queryStringParameters.keySet();
-
-        if (parameterNames.size() > 0) {
-
-            sb.append("?");
+        boolean first = true;
+        for (Map.Entry<String, String> parameter : this.queryStringParameters.entrySet()) {
+            sb.append(first ? '?' : '&');
+            first = false;
 
-            for (String name : parameterNames) {
-                sb.append(urlEncode(name));
-                sb.append("=");
-                sb.append(urlEncode(this.queryStringParameters.get(name)));
-                sb.append("&");
-            }
-        }
-
-        String url = sb.toString();
-        if (url.endsWith("&")) {
-            url = url.substring(0, url.length() - 1);
+            sb.append(urlEncodeCached(parameter.getKey()));
+            sb.append('=');
+            sb.append(urlEncode(parameter.getValue()));
         }
 
-        return url;
-    }
-
-    private static String addTrailingSlash(String s) {
-        if (!s.endsWith("/")) {
-            s = s + "/";
-        }
-        return s;
+        this.url = sb.toString();
+        return this.url;
     }
 
     private static String removeTrailingSlash(String s) {
@@ -132,4 +154,55 @@ public class OrcURLImpl implements OrcURL {
 
         return s;
     }
+
+    private static class ParsedBaseUrl {
+        final String baseUrl;
+        final String[] parameterNames;
+        final String[] parameterValues;
+
+        ParsedBaseUrl(String url) {
+            int queryStart = url.indexOf('?');
+            if (queryStart == -1) {
+                baseUrl = removeTrailingSlash(url);
+                parameterNames = new String[0];
+                parameterValues = new String[0];
+                return;
+            }
+
+            baseUrl = removeTrailingSlash(url.substring(0, queryStart));
+
+            List<String> names = new ArrayList<String>();
+            List<String> values = new ArrayList<String>();
+
+            int queryEnd = url.indexOf('?', queryStart + 1);
+            if (queryEnd == -1) {
+                queryEnd = url.length();
+            }
+
+            int start = queryStart + 1;
+            while (start <= queryEnd) {
+                int end = url.indexOf('&', start);
+                if (end == -1 || end > queryEnd) {
+                    end = queryEnd;
+                }
+
+                int equals = url.indexOf('=', start);
+                if (end == start) {
+                    // empty parameter, e.g. a trailing '&'
+                } else if (equals == -1 || equals > end) {
+                    names.add(url.substring(start, end));
+                    values.add("");
+                } else {
+                    names.add(url.substring(start, equals));
+                    int valueEnd = url.indexOf('=', equals + 1);
+                    values.add(url.substring(equals + 1, valueEnd == -1 || valueEnd > end ? end : valueEnd));
+                }
+
+                start = end + 1;
+            }
+
+            parameterNames = names.toArray(new String[names.size()]);
+            parameterValues = values.toArray(new String[values.size()]);
+        }
+    }
 }
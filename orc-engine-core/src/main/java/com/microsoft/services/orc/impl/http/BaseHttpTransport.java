@@ -11,6 +11,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.microsoft.services.orc.interfaces.HttpTransport;
 import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.RequestMetrics;
 import com.microsoft.services.orc.interfaces.Response;
 
 /**
@@ -18,6 +19,82 @@ import com.microsoft.services.orc.interfaces.Response;
  */
 public abstract class BaseHttpTransport implements HttpTransport {
 
+    private volatile NetworkExecutor mNetworkExecutor = null;
+    private NetworkExecutor mOwnedNetworkExecutor = null;
+    private volatile RequestMetrics mRequestMetrics = null;
+
+    /**
+     * Gets the executor used to run requests. When null, every request runs on its own thread.
+     *
+     * @return the network executor
+     */
+    public NetworkExecutor getNetworkExecutor() {
+        return mNetworkExecutor;
+    }
+
+    /**
+     * Sets the executor used to run requests. When null, every request runs on its own thread.
+     * The executor is not shut down by the transport, except the one created by {@link #useVirtualThreads()}
+     * which is shut down when it is replaced.
+     *
+     * @param networkExecutor the network executor
+     */
+    public synchronized void setNetworkExecutor(NetworkExecutor networkExecutor) {
+        NetworkExecutor owned = mOwnedNetworkExecutor;
+        mOwnedNetworkExecutor = null;
+        mNetworkExecutor = networkExecutor;
+
+        if (owned != null && owned != networkExecutor) {
+            owned.shutdown();
+        }
+    }
+
+    /**
+     * Gets the metrics the transport reports the queue wait and connect times to.
+     *
+     * @return the request metrics
+     */
+    public RequestMetrics getRequestMetrics() {
+        return mRequestMetrics;
+    }
+
+    /**
+     * Sets the metrics the transport reports the queue wait and connect times to.
+     * Usually the instance returned by {@link com.microsoft.services.orc.interfaces.DependencyResolver#getRequestMetrics()}.
+     *
+     * @param requestMetrics the request metrics, or null to disable metrics
+     */
+    public void setRequestMetrics(RequestMetrics requestMetrics) {
+        mRequestMetrics = requestMetrics;
+    }
+
+    /**
+     * Runs every request on its own virtual thread when the runtime supports it (Java 21 or later).
+     * Otherwise the transport keeps using a platform thread per request.
+     * The executor is created by the transport, it can't replace an executor set with
+     * {@link #setNetworkExecutor(NetworkExecutor)}.
+     *
+     * @return true if virtual threads are used
+     * @throws IllegalStateException if a network executor has been set
+     */
+    public synchronized boolean useVirtualThreads() {
+        if (mOwnedNetworkExecutor != null) {
+            return true;
+        }
+        if (mNetworkExecutor != null) {
+            throw new IllegalStateException("A network executor is already set");
+        }
+
+        NetworkExecutor executor = NetworkExecutor.createVirtualThreadExecutor(0, 0);
+        if (executor == null) {
+            return false;
+        }
+
+        mNetworkExecutor = executor;
+        mOwnedNetworkExecutor = executor;
+        return true;
+    }
+
     @Override
     public Request createRequest() {
         return new RequestImpl();
@@ -28,8 +105,37 @@ public abstract class BaseHttpTransport implements HttpTransport {
 
         final SettableFuture<Response> future = SettableFuture.create();
         final NetworkRunnable target = createNetworkRunnable(request, future);
+        target.queued(mRequestMetrics);
 
-        final NetworkThread networkThread = new NetworkThread(target) {
+        NetworkExecutor executor = mNetworkExecutor;
+        if (executor != null) {
+            Futures.addCallback(future, new FutureCallback<Response>() {
+                @Override
+                public void onFailure(Throwable t) {
+                    try {
+                        target.closeStreamAndConnection();
+                    } catch (Throwable ignored) {
+                    }
+                }
+
+                @Override
+                public void onSuccess(Response response) {
+                }
+            });
+
+            executor.execute(getHost(request), target, future);
+            return future;
+        }
+
+        Runnable run = new Runnable() {
+            @Override
+            public void run() {
+                target.dequeued();
+                target.run();
+            }
+        };
+
+        final NetworkThread networkThread = new NetworkThread(run) {
             @Override
             public void releaseAndStop() {
                 try {
@@ -54,5 +160,18 @@ public abstract class BaseHttpTransport implements HttpTransport {
         return future;
     }
 
+    private static String getHost(Request request) {
+        String baseUrl = request.getUrl().getBaseUrl();
+        if (baseUrl == null) {
+            return "";
+        }
+
+        int start = baseUrl.indexOf("://");
+        start = start == -1 ? 0 : start + 3;
+
+        int end = baseUrl.indexOf('/', start);
+        return end == -1 ? baseUrl.substring(start) : baseUrl.substring(start, end);
+    }
+
     protected abstract NetworkRunnable createNetworkRunnable(Request request, SettableFuture<Response> future);
 }
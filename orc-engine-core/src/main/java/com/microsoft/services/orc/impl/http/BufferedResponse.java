@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.http;
+
+import com.google.common.io.ByteStreams;
+import com.microsoft.services.orc.interfaces.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response whose content was read into memory.
+ * Every call to {@link #getStream()} returns a new stream over the same content,
+ * so a single instance can be handed to several consumers.
+ */
+public class BufferedResponse implements Response {
+
+    private final int mStatus;
+    private final Map<String, List<String>> mHeaders;
+    private final byte[] mContent;
+
+    /**
+     * Instantiates a new Buffered response.
+     *
+     * @param status the status
+     * @param headers the headers
+     * @param content the content
+     */
+    public BufferedResponse(int status, Map<String, List<String>> headers, byte[] content) {
+        mStatus = status;
+        mHeaders = headers == null ? new HashMap<String, List<String>>() : new HashMap<String, List<String>>(headers);
+        mContent = content == null ? new byte[0] : content;
+    }
+
+    /**
+     * Reads the content of a response and closes it.
+     *
+     * @param response the response
+     * @return the buffered response
+     * @throws IOException the iO exception
+     */
+    public static BufferedResponse read(Response response) throws IOException {
+        try {
+            InputStream stream = response.getStream();
+            byte[] content = stream == null ? new byte[0] : ByteStreams.toByteArray(stream);
+            return new BufferedResponse(response.getStatus(), response.getHeaders(), content);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Gets the content.
+     *
+     * @return the content
+     */
+    public byte[] getContent() {
+        return mContent;
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaders() {
+        return new HashMap<String, List<String>>(mHeaders);
+    }
+
+    @Override
+    public List<String> getHeaders(String headerName) {
+        return mHeaders.get(headerName);
+    }
+
+    @Override
+    public int getStatus() {
+        return mStatus;
+    }
+
+    @Override
+    public InputStream getStream() {
+        return new ByteArrayInputStream(mContent);
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
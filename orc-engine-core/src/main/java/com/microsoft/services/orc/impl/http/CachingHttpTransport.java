@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.http;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.Constants;
+import com.microsoft.services.orc.interfaces.HttpTransport;
+import com.microsoft.services.orc.interfaces.HttpVerb;
+import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.Response;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.microsoft.services.orc.Helpers.getHeaderValue;
+
+/**
+ * Http transport that caches GET responses and revalidates them with their ETag.
+ * <p/>
+ * Responses are cached per url and request headers, except the headers that don't change the
+ * representation like User-Agent; the request headers named by the Vary of a response must
+ * match too. A response is served from the cache without
+ * a request while it is fresh according to its Cache-Control max-age; afterwards it is
+ * revalidated with If-None-Match, and a 304 response is answered with the cached content.
+ * Only 200 responses are cached; responses marked no-store or Vary: *, and responses with
+ * neither an ETag nor a max-age, are not cached. Requests with a Range or with their own
+ * conditional headers bypass the cache.
+ * Any other verb sent to a url removes the cached responses for the resources at, below and
+ * above its path, both when it is sent and when it completes, so a response read while the
+ * change was in flight isn't kept either.
+ * The least recently used responses are evicted when the cache is full.
+ */
+public class CachingHttpTransport implements HttpTransport {
+
+    private static final int OK = 200;
+    private static final int NOT_MODIFIED = 304;
+
+    private final HttpTransport mTransport;
+    private final long mMaxSize;
+    private final int mMaxEntries;
+
+    // access ordered, so iteration starts with the least recently used entry
+    private final LinkedHashMap<String, CacheEntry> mEntries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private long mSize = 0;
+    // incremented by every invalidation, responses requested before one are not stored
+    private long mGeneration = 0;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mRevalidatedCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    /**
+     * Instantiates a new Caching http transport.
+     *
+     * @param transport the transport that sends the requests
+     * @param maxSize the maximum total size in bytes of the cached content
+     * @param maxEntries the maximum number of cached responses
+     */
+    public CachingHttpTransport(HttpTransport transport, long maxSize, int maxEntries) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport");
+        }
+
+        mTransport = transport;
+        mMaxSize = maxSize;
+        mMaxEntries = maxEntries;
+    }
+
+    @Override
+    public Request createRequest() {
+        return mTransport.createRequest();
+    }
+
+    @Override
+    public ListenableFuture<Response> execute(Request request) {
+        if (request.getOptions().get(Request.MUST_STREAM_RESPONSE_CONTENT) != null) {
+            return mTransport.execute(request);
+        }
+
+        final String url = request.getUrl().toString();
+
+        if (request.getVerb() != HttpVerb.GET) {
+            final String path = getPath(url);
+            invalidate(path);
+
+            ListenableFuture<Response> future = mTransport.execute(request);
+            Futures.addCallback(future, new FutureCallback<Response>() {
+                @Override
+                public void onSuccess(Response response) {
+                    invalidate(path);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    invalidate(path);
+                }
+            });
+
+            return future;
+        }
+
+        final Map<String, String> requestHeaders = getLowerCaseHeaders(request);
+        if (requestHeaders.containsKey("range") || isConditional(requestHeaders)) {
+            // the caller handles the validation, or wants only a part of the content
+            return mTransport.execute(request);
+        }
+
+        final String key = getKey(url, requestHeaders);
+        final long generation;
+        CacheEntry entry;
+        synchronized (this) {
+            entry = mEntries.get(key);
+            generation = mGeneration;
+        }
+
+        if (entry != null && !entry.matchesVary(requestHeaders)) {
+            entry = null;
+        }
+
+        final CacheEntry cached = entry;
+
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            mHitCount.incrementAndGet();
+            SettableFuture<Response> result = SettableFuture.create();
+            result.set(cached.response);
+            return result;
+        }
+
+        if (cached != null && cached.etag != null) {
+            request.addHeader(Constants.IF_NONE_MATCH_HEADER, cached.etag);
+        } else {
+            mMissCount.incrementAndGet();
+        }
+
+        final SettableFuture<Response> result = SettableFuture.create();
+        Futures.addCallback(mTransport.execute(request), new FutureCallback<Response>() {
+            @Override
+            public void onSuccess(Response response) {
+                try {
+                    result.set(onResponse(url, key, generation, requestHeaders, cached, response));
+                } catch (Throwable t) {
+                    result.setException(t);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Removes all the cached responses.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Gets the number of requests served from the cache without contacting the server.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * Gets the number of requests that had no usable cached response, including the
+     * revalidations answered with new content.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * Gets the number of cached responses confirmed by the server with a 304 response.
+     *
+     * @return the revalidated count
+     */
+    public long getRevalidatedCount() {
+        return mRevalidatedCount.get();
+    }
+
+    /**
+     * Gets the number of responses evicted because the cache was full.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    /**
+     * Gets the total size in bytes of the cached content.
+     *
+     * @return the size
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    /**
+     * Gets the number of cached responses.
+     *
+     * @return the entry count
+     */
+    public synchronized int getEntryCount() {
+        return mEntries.size();
+    }
+
+    private Response onResponse(String url, String key, long generation, Map<String, String> requestHeaders,
+                                CacheEntry cached, Response response) throws Exception {
+        int status = response.getStatus();
+
+        if (status == NOT_MODIFIED && cached != null) {
+            response.close();
+            mRevalidatedCount.incrementAndGet();
+
+            CacheControl cacheControl = CacheControl.parse(getHeaderValue(response, Constants.CACHE_CONTROL_HEADER));
+            if (cacheControl != null) {
+                cached.updateFreshness(cacheControl, System.currentTimeMillis());
+            }
+
+            return cached.response;
+        }
+
+        if (cached != null && cached.etag != null) {
+            // the revalidation returned new content
+            mMissCount.incrementAndGet();
+        }
+
+        if (status != OK) {
+            // a partial content is never stored
+            return response;
+        }
+
+        CacheControl cacheControl = CacheControl.parse(getHeaderValue(response, Constants.CACHE_CONTROL_HEADER));
+        String etag = getHeaderValue(response, Constants.ETAG_HEADER);
+        Map<String, String> varyHeaders = getVaryHeaders(getHeaderValue(response, Constants.VARY_HEADER), requestHeaders);
+
+        if (cacheControl == null) {
+            cacheControl = new CacheControl();
+        }
+
+        if (cacheControl.noStore || varyHeaders == null || (etag == null && cacheControl.maxAge <= 0)) {
+            remove(key);
+            return response;
+        }
+
+        BufferedResponse buffered = BufferedResponse.read(response);
+        put(key, generation, new CacheEntry(url, buffered, etag, varyHeaders, cacheControl, System.currentTimeMillis()));
+        return buffered;
+    }
+
+    private synchronized void put(String key, long generation, CacheEntry entry) {
+        if (generation != mGeneration) {
+            // the resource may have changed while this response was read
+            remove(key);
+            return;
+        }
+
+        long entrySize = entry.response.getContent().length;
+        if (entrySize > mMaxSize) {
+            remove(key);
+            return;
+        }
+
+        CacheEntry previous = mEntries.put(key, entry);
+        if (previous != null) {
+            mSize -= previous.response.getContent().length;
+        }
+        mSize += entrySize;
+
+        Iterator<Map.Entry<String, CacheEntry>> iterator = mEntries.entrySet().iterator();
+        while ((mSize > mMaxSize || mEntries.size() > mMaxEntries) && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iterator.next();
+            if (eldest.getValue() == entry) {
+                continue;
+            }
+
+            mSize -= eldest.getValue().response.getContent().length;
+            iterator.remove();
+            mEvictionCount.incrementAndGet();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        CacheEntry previous = mEntries.remove(key);
+        if (previous != null) {
+            mSize -= previous.response.getContent().length;
+        }
+    }
+
+    private synchronized void invalidate(String path) {
+        mGeneration++;
+
+        Iterator<Map.Entry<String, CacheEntry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> entry = iterator.next();
+            String cachedPath = entry.getValue().path;
+            if (isPathPrefix(path, cachedPath) || isPathPrefix(cachedPath, path)) {
+                mSize -= entry.getValue().response.getContent().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the url without its query, fragment and trailing slash.
+     */
+    private static String getPath(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        while (end > 0 && url.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        return url.substring(0, end);
+    }
+
+    /**
+     * Checks if a path is the same as another or one of its ancestors, at a segment boundary
+     * (a '/' or the '(' of an OData key).
+     */
+    private static boolean isPathPrefix(String prefix, String path) {
+        if (!path.startsWith(prefix)) {
+            return false;
+        }
+        if (path.length() == prefix.length()) {
+            return true;
+        }
+
+        char next = path.charAt(prefix.length());
+        return next == '/' || next == '(';
+    }
+
+    private static boolean isConditional(Map<String, String> requestHeaders) {
+        return requestHeaders.containsKey("if-none-match")
+                || requestHeaders.containsKey("if-modified-since")
+                || requestHeaders.containsKey("if-match")
+                || requestHeaders.containsKey("if-unmodified-since")
+                || requestHeaders.containsKey("if-range");
+    }
+
+    /**
+     * Gets the request headers by lower case name, sorted so they can be part of the key.
+     */
+    private static Map<String, String> getLowerCaseHeaders(Request request) {
+        Map<String, String> headers = new TreeMap<String, String>();
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            headers.put(header.getKey().toLowerCase(Locale.US), header.getValue());
+        }
+
+        return headers;
+    }
+
+    private static String getKey(String url, Map<String, String> requestHeaders) {
+        StringBuilder sb = new StringBuilder(url);
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            if (!isKeyHeader(header.getKey())) {
+                continue;
+            }
+
+            sb.append('\n').append(header.getKey()).append(':').append(header.getValue());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Checks if a request header can change the representation returned, the ones that don't
+     * are left out of the key so requests differing only by them share the cached response.
+     */
+    private static boolean isKeyHeader(String lowerCaseName) {
+        return !lowerCaseName.equals("user-agent")
+                && !lowerCaseName.equals("x-clientservice-clienttag");
+    }
+
+    /**
+     * Gets the values of the request headers named by a Vary value.
+     *
+     * @return the values by lower case name, or null if the response varies on anything (Vary: *)
+     */
+    private static Map<String, String> getVaryHeaders(String vary, Map<String, String> requestHeaders) {
+        Map<String, String> varyHeaders = new HashMap<String, String>();
+        if (vary == null) {
+            return varyHeaders;
+        }
+
+        for (String name : vary.split(",")) {
+            String trimmed = name.trim().toLowerCase(Locale.US);
+            if (trimmed.equals("*")) {
+                return null;
+            }
+            if (trimmed.length() > 0) {
+                varyHeaders.put(trimmed, requestHeaders.get(trimmed));
+            }
+        }
+
+        return varyHeaders;
+    }
+
+    private static class CacheEntry {
+        final String path;
+        final BufferedResponse response;
+        final String etag;
+        // the request headers the response varies on, by lower case name
+        final Map<String, String> varyHeaders;
+        volatile long expires;
+        volatile boolean noCache;
+
+        CacheEntry(String url, BufferedResponse response, String etag, Map<String, String> varyHeaders,
+                   CacheControl cacheControl, long now) {
+            this.path = getPath(url);
+            this.response = response;
+            this.etag = etag;
+            this.varyHeaders = varyHeaders;
+            updateFreshness(cacheControl, now);
+        }
+
+        boolean matchesVary(Map<String, String> requestHeaders) {
+            for (Map.Entry<String, String> header : varyHeaders.entrySet()) {
+                String value = requestHeaders.get(header.getKey());
+                if (value == null ? header.getValue() != null : !value.equals(header.getValue())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        boolean isFresh(long now) {
+            return !noCache && now < expires;
+        }
+
+        void updateFreshness(CacheControl cacheControl, long now) {
+            noCache = cacheControl.noCache;
+            expires = cacheControl.maxAge > 0 ? now + cacheControl.maxAge * 1000 : now;
+        }
+    }
+
+    private static class CacheControl {
+        boolean noStore = false;
+        boolean noCache = false;
+        long maxAge = -1;
+
+        static CacheControl parse(String value) {
+            if (value == null) {
+                return null;
+            }
+
+            CacheControl cacheControl = new CacheControl();
+            for (String directive : value.split(",")) {
+                String trimmed = directive.trim().toLowerCase(Locale.US);
+
+                if (trimmed.equals("no-store")) {
+                    cacheControl.noStore = true;
+                } else if (trimmed.equals("no-cache")) {
+                    cacheControl.noCache = true;
+                } else if (trimmed.startsWith("max-age=")) {
+                    try {
+                        cacheControl.maxAge = Long.parseLong(trimmed.substring("max-age=".length()).trim());
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+
+            return cacheControl;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.http;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.interfaces.HttpTransport;
+import com.microsoft.services.orc.interfaces.HttpVerb;
+import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Http transport that shares a single in-flight request among identical concurrent GETs.
+ * <p/>
+ * Two GET requests are identical when they have the same url and the same headers, including
+ * the credentials. While the first one is in flight, the others wait for its response instead of
+ * being sent. The response content is read into memory so every caller gets its own stream.
+ * Requests that stream or defer their response content are never coalesced.
+ * <p/>
+ * Cancelling the future of a caller only affects that caller; the shared request is cancelled
+ * when all the callers waiting for it have cancelled theirs.
+ */
+public class CoalescingHttpTransport implements HttpTransport {
+
+    private final HttpTransport mTransport;
+    private final ConcurrentHashMap<String, InFlight> mInFlight = new ConcurrentHashMap<String, InFlight>();
+
+    /**
+     * Instantiates a new Coalescing http transport.
+     *
+     * @param transport the transport that sends the requests
+     */
+    public CoalescingHttpTransport(HttpTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport");
+        }
+
+        mTransport = transport;
+    }
+
+    @Override
+    public Request createRequest() {
+        return mTransport.createRequest();
+    }
+
+    @Override
+    public ListenableFuture<Response> execute(Request request) {
+        if (request.getVerb() != HttpVerb.GET
+                || request.getOptions().get(Request.MUST_STREAM_RESPONSE_CONTENT) != null
+                || request.getOptions().get(Request.DEFER_RESPONSE_CONTENT) != null) {
+            // the caller reads the content itself, it can't be buffered and shared
+            return mTransport.execute(request);
+        }
+
+        final String key = getKey(request);
+        boolean first = false;
+        InFlight inFlight = null;
+        while (inFlight == null) {
+            InFlight created = new InFlight();
+            inFlight = mInFlight.putIfAbsent(key, created);
+            if (inFlight == null) {
+                inFlight = created;
+                first = true;
+            }
+
+            if (!inFlight.join()) {
+                // cancelled by all its callers while being looked up
+                mInFlight.remove(key, inFlight);
+                inFlight = null;
+            }
+        }
+
+        // every caller gets its own future, so cancelling one does not affect the others
+        final InFlight joined = inFlight;
+        final SettableFuture<Response> result = SettableFuture.create();
+        Futures.addCallback(joined.shared, new FutureCallback<Response>() {
+            @Override
+            public void onSuccess(Response response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+        });
+        Futures.addCallback(result, new FutureCallback<Response>() {
+            @Override
+            public void onSuccess(Response response) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (result.isCancelled()) {
+                    leave(key, joined);
+                }
+            }
+        });
+
+        if (first) {
+            send(request, key, joined);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the number of distinct requests currently in flight.
+     *
+     * @return the number of requests
+     */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    private void send(Request request, final String key, final InFlight inFlight) {
+        ListenableFuture<Response> future;
+        try {
+            future = mTransport.execute(request);
+        } catch (Throwable t) {
+            mInFlight.remove(key, inFlight);
+            inFlight.shared.setException(t);
+            return;
+        }
+
+        if (!inFlight.setUpstream(future)) {
+            // every caller cancelled before the request was sent
+            future.cancel(true);
+            return;
+        }
+
+        Futures.addCallback(future, new FutureCallback<Response>() {
+            @Override
+            public void onSuccess(Response response) {
+                if (inFlight.shared.isCancelled()) {
+                    try {
+                        response.close();
+                    } catch (IOException ignored) {
+                    }
+                    return;
+                }
+
+                try {
+                    BufferedResponse buffered = BufferedResponse.read(response);
+                    mInFlight.remove(key, inFlight);
+                    inFlight.shared.set(buffered);
+                } catch (Throwable t) {
+                    onFailure(t);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                mInFlight.remove(key, inFlight);
+                inFlight.shared.setException(t);
+            }
+        });
+    }
+
+    /**
+     * Removes a caller that cancelled its future, the last one cancels the shared request.
+     */
+    private void leave(String key, InFlight inFlight) {
+        if (!inFlight.leave()) {
+            return;
+        }
+
+        mInFlight.remove(key, inFlight);
+        inFlight.shared.cancel(false);
+
+        ListenableFuture<Response> upstream = inFlight.getUpstream();
+        if (upstream != null) {
+            upstream.cancel(true);
+        }
+    }
+
+    private static String getKey(Request request) {
+        StringBuilder key = new StringBuilder();
+        key.append(request.getVerb()).append(' ').append(request.getUrl().toString());
+
+        Map<String, String> headers = new TreeMap<String, String>(request.getHeaders());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            key.append('\n').append(header.getKey()).append(':').append(header.getValue());
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * A request in flight and the number of callers waiting for it.
+     */
+    private static class InFlight {
+        final SettableFuture<Response> shared = SettableFuture.create();
+        private ListenableFuture<Response> upstream = null;
+        private int waiters = 0;
+        private boolean cancelled = false;
+
+        synchronized boolean join() {
+            if (cancelled) {
+                return false;
+            }
+
+            waiters++;
+            return true;
+        }
+
+        /**
+         * Removes a caller.
+         *
+         * @return true if it was the last one, no caller can join afterwards
+         */
+        synchronized boolean leave() {
+            if (cancelled || --waiters > 0) {
+                return false;
+            }
+
+            cancelled = true;
+            return true;
+        }
+
+        synchronized boolean setUpstream(ListenableFuture<Response> future) {
+            upstream = future;
+            return !cancelled;
+        }
+
+        synchronized ListenableFuture<Response> getUpstream() {
+            return upstream;
+        }
+    }
+}
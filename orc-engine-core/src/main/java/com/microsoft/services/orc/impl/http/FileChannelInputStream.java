@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a region of a file channel with positional reads. The position of the channel
+ * is not changed, and the channel is not closed with the stream.
+ */
+public class FileChannelInputStream extends InputStream {
+
+    private final FileChannel mChannel;
+    private long mPosition;
+    private long mRemaining;
+
+    /**
+     * Instantiates a new FileChannelInputStream.
+     *
+     * @param channel the channel
+     * @param position the position of the first byte to read
+     * @param count the number of bytes to read
+     */
+    public FileChannelInputStream(FileChannel channel, long position, long count) {
+        mChannel = channel;
+        mPosition = position;
+        mRemaining = count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (mRemaining <= 0) {
+            return -1;
+        }
+
+        ByteBuffer target = ByteBuffer.wrap(buffer, offset, (int) Math.min(length, mRemaining));
+        int read = mChannel.read(target, mPosition);
+        if (read > 0) {
+            mPosition += read;
+            mRemaining -= read;
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, mRemaining));
+        mPosition += skipped;
+        mRemaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, mRemaining);
+    }
+}
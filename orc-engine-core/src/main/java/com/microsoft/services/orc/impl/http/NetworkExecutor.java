@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.http;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.microsoft.services.orc.interfaces.Response;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs network operations on a bounded pool instead of one thread per request.
+ * Optionally caps the number of concurrent requests per host.
+ */
+public class NetworkExecutor {
+
+    /**
+     * What to do with a request when the pool and its queue are full.
+     */
+    public enum RejectionPolicy {
+        /**
+         * Fails the request future with a RejectedExecutionException.
+         */
+        ABORT,
+        /**
+         * Runs the request on the thread that submitted it.
+         */
+        CALLER_RUNS
+    }
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private final ExecutorService mExecutor;
+    private final int mMaxRequestsPerHost;
+    private final int mMaxQueuedRequests;
+    private RejectionPolicy mRejectionPolicy = RejectionPolicy.ABORT;
+
+    private final Map<String, HostQueue> mHosts = new HashMap<String, HostQueue>();
+    private int mParkedRequests = 0;
+
+    /**
+     * Instantiates a new Network executor backed by its own thread pool.
+     *
+     * @param maxThreads the maximum number of requests executing at the same time
+     * @param maxQueuedRequests the maximum number of requests waiting for a thread
+     * @param maxRequestsPerHost the maximum number of concurrent requests per host, or 0 for no limit
+     */
+    public NetworkExecutor(int maxThreads, int maxQueuedRequests, int maxRequestsPerHost) {
+        this(createThreadPool(maxThreads, maxQueuedRequests), maxQueuedRequests, maxRequestsPerHost);
+    }
+
+    /**
+     * Instantiates a new Network executor on top of an existing executor service.
+     *
+     * @param executor the executor service
+     * @param maxQueuedRequests the maximum number of requests waiting for a per host slot
+     * @param maxRequestsPerHost the maximum number of concurrent requests per host, or 0 for no limit
+     */
+    public NetworkExecutor(ExecutorService executor, int maxQueuedRequests, int maxRequestsPerHost) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor");
+        }
+
+        mExecutor = executor;
+        mMaxQueuedRequests = maxQueuedRequests;
+        mMaxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    /**
+     * Creates a network executor that runs every request on its own virtual thread.
+     * Virtual threads require Java 21 or later.
+     *
+     * @param maxQueuedRequests the maximum number of requests waiting for a per host slot
+     * @param maxRequestsPerHost the maximum number of concurrent requests per host, or 0 for no limit
+     * @return the network executor, or null if virtual threads are not supported by the runtime
+     */
+    public static NetworkExecutor createVirtualThreadExecutor(int maxQueuedRequests, int maxRequestsPerHost) {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            return null;
+        }
+
+        try {
+            ExecutorService executor = (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            return new NetworkExecutor(executor, maxQueuedRequests, maxRequestsPerHost);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the runtime supports virtual threads.
+     *
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Gets rejection policy.
+     *
+     * @return the rejection policy
+     */
+    public RejectionPolicy getRejectionPolicy() {
+        return mRejectionPolicy;
+    }
+
+    /**
+     * Sets rejection policy.
+     *
+     * @param rejectionPolicy the rejection policy
+     */
+    public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+        if (rejectionPolicy == null) {
+            throw new IllegalArgumentException("rejectionPolicy");
+        }
+
+        mRejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * Stops accepting new requests. Requests already submitted are completed.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Executes the network operation, waiting for a free slot if the host is at its limit
+     *
+     * @param host the host the request is sent to
+     * @param runnable the network operation
+     * @param future the future for the operation
+     */
+    void execute(String host, NetworkRunnable runnable, SettableFuture<Response> future) {
+        HostTask task = new HostTask(host, runnable, future);
+
+        if (mMaxRequestsPerHost > 0) {
+            synchronized (mHosts) {
+                HostQueue queue = mHosts.get(host);
+                if (queue == null) {
+                    queue = new HostQueue();
+                    mHosts.put(host, queue);
+                }
+
+                if (queue.active >= mMaxRequestsPerHost) {
+                    if (mParkedRequests >= mMaxQueuedRequests) {
+                        future.setException(new RejectedExecutionException(
+                                "Too many requests waiting for host " + host));
+                        return;
+                    }
+
+                    queue.waiting.add(task);
+                    mParkedRequests++;
+                    return;
+                }
+
+                queue.active++;
+            }
+        }
+
+        submit(task);
+    }
+
+    private void submit(HostTask task) {
+        try {
+            mExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (mRejectionPolicy == RejectionPolicy.CALLER_RUNS && !mExecutor.isShutdown()) {
+                task.run();
+            } else {
+                release(task.host);
+                task.future.setException(e);
+            }
+        }
+    }
+
+    private void release(String host) {
+        if (mMaxRequestsPerHost <= 0) {
+            return;
+        }
+
+        HostTask next;
+        synchronized (mHosts) {
+            HostQueue queue = mHosts.get(host);
+            if (queue == null) {
+                return;
+            }
+
+            next = queue.waiting.poll();
+            if (next != null) {
+                mParkedRequests--;
+            } else {
+                queue.active--;
+                if (queue.active == 0) {
+                    mHosts.remove(host);
+                }
+            }
+        }
+
+        if (next != null) {
+            submit(next);
+        }
+    }
+
+    private static ExecutorService createThreadPool(int maxThreads, int maxQueuedRequests) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(maxQueuedRequests),
+                new NetworkThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (Throwable ignored) {
+            // not available before Java 21
+            return null;
+        }
+    }
+
+    private class HostTask implements Runnable {
+        final String host;
+        final NetworkRunnable runnable;
+        final SettableFuture<Response> future;
+
+        HostTask(String host, NetworkRunnable runnable, SettableFuture<Response> future) {
+            this.host = host;
+            this.runnable = runnable;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // the request may have been cancelled while it was queued
+                if (!future.isDone()) {
+                    runnable.dequeued();
+                    runnable.run();
+                }
+            } finally {
+                release(host);
+            }
+        }
+    }
+
+    private static class HostQueue {
+        int active = 0;
+        final LinkedList<HostTask> waiting = new LinkedList<HostTask>();
+    }
+
+    private static class NetworkThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "orc-network-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -8,6 +8,8 @@ package com.microsoft.services.orc.impl.http;
 
 import com.google.common.util.concurrent.SettableFuture;
 import com.microsoft.services.orc.interfaces.Request;
+import com.microsoft.services.orc.interfaces.RequestMetrics;
+import com.microsoft.services.orc.interfaces.RequestPhase;
 import com.microsoft.services.orc.interfaces.Response;
 
 import java.io.IOException;
@@ -15,7 +17,8 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 
 /**
- * Runnable that executes a network operation
+ * Runnable that executes a network operation.
+ * Implementations can report the time spent connecting with {@link #recordTiming(RequestPhase, long)}.
  */
 public abstract class NetworkRunnable implements Runnable {
 
@@ -41,6 +44,9 @@ public abstract class NetworkRunnable implements Runnable {
      */
     protected final Object mCloseLock = new Object();
 
+    private RequestMetrics mMetrics = null;
+    private long mQueuedAt = 0;
+
     /**
      * Initializes the network runnable
      *
@@ -52,6 +58,38 @@ public abstract class NetworkRunnable implements Runnable {
         mFuture = future;
     }
 
+    /**
+     * Records the time spent in a phase of the request, if the transport reports request metrics.
+     *
+     * @param phase the phase
+     * @param nanos the time spent, in nanoseconds
+     */
+    protected void recordTiming(RequestPhase phase, long nanos) {
+        RequestMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordTiming(mRequest.getOptions().get(Request.METRICS_KEY), phase, nanos);
+        }
+    }
+
+    /**
+     * Marks the operation as waiting to be run.
+     *
+     * @param metrics the metrics the waiting time is reported to, or null
+     */
+    void queued(RequestMetrics metrics) {
+        mMetrics = metrics;
+        mQueuedAt = System.nanoTime();
+    }
+
+    /**
+     * Marks the operation as about to run and reports the time spent waiting.
+     */
+    void dequeued() {
+        if (mMetrics != null) {
+            recordTiming(RequestPhase.QUEUE_WAIT, System.nanoTime() - mQueuedAt);
+        }
+    }
+
     /**
      * Closes the stream and connection, if possible
      */
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.metrics;
+
+import com.microsoft.services.orc.interfaces.RequestMetrics;
+import com.microsoft.services.orc.interfaces.RequestPhase;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default request metrics. Recording never locks: counters are striped across cache lines
+ * and timings go to log-linear histograms updated with atomic increments.
+ * Use {@link #getSnapshot()} to read the metrics.
+ */
+public class RequestMetricsImpl implements RequestMetrics {
+
+    /**
+     * The key the requests are reported under once the maximum number of keys is reached.
+     */
+    public static final String OTHER_KEY = "(other)";
+
+    private static final int DEFAULT_MAX_KEYS = 1024;
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    private final ConcurrentMap<String, KeyMetrics> metrics = new ConcurrentHashMap<String, KeyMetrics>();
+    private final int maxKeys;
+
+    /**
+     * Instantiates a new Request metrics impl.
+     */
+    public RequestMetricsImpl() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Instantiates a new Request metrics impl.
+     *
+     * @param maxKeys the maximum number of keys tracked separately
+     */
+    public RequestMetricsImpl(int maxKeys) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("maxKeys");
+        }
+
+        this.maxKeys = maxKeys;
+    }
+
+    @Override
+    public void requestStarted(String key) {
+        KeyMetrics m = get(key);
+        m.started.increment();
+        m.inFlight.increment();
+    }
+
+    @Override
+    public void requestCompleted(String key, int status, long durationNanos) {
+        KeyMetrics m = get(key);
+        m.completed.increment();
+        m.inFlight.add(-1);
+        m.duration.record(durationNanos);
+
+        AtomicLong statusCount = m.statusCounts.get(status);
+        if (statusCount == null) {
+            AtomicLong created = new AtomicLong();
+            statusCount = m.statusCounts.putIfAbsent(status, created);
+            if (statusCount == null) {
+                statusCount = created;
+            }
+        }
+        statusCount.incrementAndGet();
+    }
+
+    @Override
+    public void recordTiming(String key, RequestPhase phase, long nanos) {
+        get(key).timings[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordRequestSize(String key, long bytes) {
+        get(key).requestBytes.add(bytes);
+    }
+
+    @Override
+    public void recordResponseSize(String key, long bytes) {
+        get(key).responseBytes.add(bytes);
+    }
+
+    @Override
+    public void recordCompression(String key, long contentBytes, long encodedBytes) {
+        get(key).savedBytes.add(contentBytes - encodedBytes);
+    }
+
+    /**
+     * Takes a snapshot of the metrics of every key.
+     *
+     * @return the snapshots, sorted by key
+     */
+    public Map<String, RequestMetricsSnapshot> getSnapshot() {
+        Map<String, RequestMetricsSnapshot> result = new TreeMap<String, RequestMetricsSnapshot>();
+        for (Map.Entry<String, KeyMetrics> entry : metrics.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getSnapshot(entry.getKey()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of the metrics of a key.
+     *
+     * @param key the key
+     * @return the snapshot, or null if nothing was recorded for the key
+     */
+    public RequestMetricsSnapshot getSnapshot(String key) {
+        KeyMetrics m = metrics.get(key);
+        return m == null ? null : m.getSnapshot(key);
+    }
+
+    /**
+     * Removes the metrics of every key. Requests in flight are reported again when they complete,
+     * so their in flight count may turn negative.
+     */
+    public void reset() {
+        metrics.clear();
+    }
+
+    private KeyMetrics get(String key) {
+        if (key == null) {
+            key = "";
+        }
+
+        KeyMetrics m = metrics.get(key);
+        if (m != null) {
+            return m;
+        }
+
+        if (metrics.size() >= maxKeys) {
+            key = OTHER_KEY;
+            m = metrics.get(key);
+            if (m != null) {
+                return m;
+            }
+        }
+
+        KeyMetrics created = new KeyMetrics();
+        m = metrics.putIfAbsent(key, created);
+        return m == null ? created : m;
+    }
+
+    private static class KeyMetrics {
+        final StripedCounter started = new StripedCounter();
+        final StripedCounter completed = new StripedCounter();
+        final StripedCounter inFlight = new StripedCounter();
+        final StripedCounter requestBytes = new StripedCounter();
+        final StripedCounter responseBytes = new StripedCounter();
+        final StripedCounter savedBytes = new StripedCounter();
+        final ConcurrentMap<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<Integer, AtomicLong>();
+        final Histogram duration = new Histogram();
+        final Histogram[] timings = new Histogram[PHASES.length];
+
+        KeyMetrics() {
+            for (int i = 0; i < timings.length; i++) {
+                timings[i] = new Histogram();
+            }
+        }
+
+        RequestMetricsSnapshot getSnapshot(String key) {
+            Map<Integer, Long> statuses = new TreeMap<Integer, Long>();
+            for (Map.Entry<Integer, AtomicLong> entry : statusCounts.entrySet()) {
+                statuses.put(entry.getKey(), entry.getValue().get());
+            }
+
+            EnumMap<RequestPhase, HistogramSnapshot> timingSnapshots =
+                    new EnumMap<RequestPhase, HistogramSnapshot>(RequestPhase.class);
+            for (RequestPhase phase : PHASES) {
+                timingSnapshots.put(phase, timings[phase.ordinal()].getSnapshot());
+            }
+
+            return new RequestMetricsSnapshot(key, started.get(), completed.get(), inFlight.get(),
+                    statuses, requestBytes.get(), responseBytes.get(), savedBytes.get(),
+                    duration.getSnapshot(), timingSnapshots);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.metrics;
+
+import com.microsoft.services.orc.interfaces.RequestPhase;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A point in time copy of the metrics recorded for one request key.
+ */
+public class RequestMetricsSnapshot {
+
+    private final String key;
+    private final long startedCount;
+    private final long completedCount;
+    private final long inFlightCount;
+    private final Map<Integer, Long> statusCounts;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long savedBytes;
+    private final HistogramSnapshot duration;
+    private final EnumMap<RequestPhase, HistogramSnapshot> timings;
+
+    RequestMetricsSnapshot(String key, long startedCount, long completedCount, long inFlightCount,
+                           Map<Integer, Long> statusCounts, long requestBytes, long responseBytes, long savedBytes,
+                           HistogramSnapshot duration, EnumMap<RequestPhase, HistogramSnapshot> timings) {
+        this.key = key;
+        this.startedCount = startedCount;
+        this.completedCount = completedCount;
+        this.inFlightCount = inFlightCount;
+        this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.savedBytes = savedBytes;
+        this.duration = duration;
+        this.timings = timings;
+    }
+
+    /**
+     * Gets the request key.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the number of requests started.
+     *
+     * @return the started count
+     */
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    /**
+     * Gets the number of requests completed, successfully or not.
+     *
+     * @return the completed count
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * Gets the number of requests started and not completed yet.
+     *
+     * @return the in flight count
+     */
+    public long getInFlightCount() {
+        return inFlightCount;
+    }
+
+    /**
+     * Gets the number of completed requests per response status. Status 0 counts the requests
+     * that failed without a response.
+     *
+     * @return the status counts
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statusCounts;
+    }
+
+    /**
+     * Gets the total size of the request contents.
+     *
+     * @return the number of bytes sent
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Gets the total size of the response contents.
+     *
+     * @return the number of bytes received
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Gets the number of bytes not transferred thanks to the compression of the contents.
+     *
+     * @return the number of bytes saved
+     */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Gets the distribution of the request durations, from sending to completion, in nanoseconds.
+     *
+     * @return the duration histogram
+     */
+    public HistogramSnapshot getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the distribution of the time spent in a phase, in nanoseconds.
+     *
+     * @param phase the phase
+     * @return the timing histogram
+     */
+    public HistogramSnapshot getTiming(RequestPhase phase) {
+        return timings.get(phase);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(key)
+                .append(": started=").append(startedCount)
+                .append(" completed=").append(completedCount)
+                .append(" inFlight=").append(inFlightCount)
+                .append(" status=").append(statusCounts)
+                .append(" sent=").append(requestBytes)
+                .append(" received=").append(responseBytes)
+                .append(" saved=").append(savedBytes)
+                .append(" duration[").append(duration).append(']');
+
+        for (Map.Entry<RequestPhase, HistogramSnapshot> timing : timings.entrySet()) {
+            if (timing.getValue().getCount() > 0) {
+                sb.append(' ').append(timing.getKey()).append('[').append(timing.getValue()).append(']');
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) Microsoft Open Technologies, Inc.
+ * All Rights Reserved
+ * See License.txt in the project root for license information.
+ ******************************************************************************/
+package com.microsoft.services.orc.impl.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter updated without contention: every thread adds to one of several cells,
+ * each on its own cache line, and the value is the sum of the cells.
+ */
+class StripedCounter {
+
+    // 16 longs = 128 bytes between cells, so two cells never share a cache line
+    private static final int PADDING = 16;
+    private static final int MAX_STRIPES = 16;
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * Adds a value to the counter.
+     *
+     * @param value the value, can be negative
+     */
+    void add(long value) {
+        cells.addAndGet(cellIndex(), value);
+    }
+
+    /**
+     * Increments the counter.
+     */
+    void increment() {
+        add(1);
+    }
+
+    /**
+     * Gets the current value. Concurrent updates may or may not be included.
+     *
+     * @return the value
+     */
+    long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Resets the counter. Concurrent updates may be lost.
+     */
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    private static int cellIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+}
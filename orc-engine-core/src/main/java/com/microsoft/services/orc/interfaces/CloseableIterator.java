@@ -0,0 +1,18 @@
+package com.microsoft.services.orc.interfaces;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator that holds resources, like requests made ahead of the items being consumed.
+ * Callers must close it when they stop iterating before the end.
+ *
+ * @param <E> the type parameter
+ */
+public interface CloseableIterator<E> extends Iterator<E>, Closeable {
+    /**
+     * Stops the iteration and releases the resources of the iterator.
+     */
+    @Override
+    public void close();
+}
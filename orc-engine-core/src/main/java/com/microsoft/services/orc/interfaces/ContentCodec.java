@@ -0,0 +1,36 @@
+package com.microsoft.services.orc.interfaces;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The interface Content codec, for a content coding of the Accept-Encoding and
+ * Content-Encoding headers, like gzip.
+ */
+public interface ContentCodec {
+    /**
+     * Gets the name of the content coding, in lower case.
+     *
+     * @return the name, e.g. gzip
+     */
+    public String getName();
+
+    /**
+     * Decodes a content as it is read.
+     *
+     * @param encoded the encoded content
+     * @return the decoded content, closing it closes the encoded content
+     * @throws IOException if the start of the content can't be read or is invalid
+     */
+    public InputStream decode(InputStream encoded) throws IOException;
+
+    /**
+     * Encodes a content as it is written.
+     *
+     * @param target the stream the encoded content is written to
+     * @return the stream to write the content to, it must be closed to complete the encoding
+     * @throws IOException if the encoding can't be started
+     */
+    public OutputStream encode(OutputStream target) throws IOException;
+}
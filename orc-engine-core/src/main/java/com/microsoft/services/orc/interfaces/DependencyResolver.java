@@ -52,4 +52,11 @@ public interface DependencyResolver {
      * @return the credentials
      */
     Credentials getCredentials();
+
+    /**
+     * Gets the metrics hook the requests are reported to.
+     *
+     * @return the request metrics, or null to disable metrics
+     */
+    RequestMetrics getRequestMetrics();
 }
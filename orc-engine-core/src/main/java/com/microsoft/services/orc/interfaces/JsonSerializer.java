@@ -1,5 +1,6 @@
 package com.microsoft.services.orc.interfaces;
 
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +34,16 @@ public interface JsonSerializer {
      */
     public <E> E deserialize(String serializedObject, Class<E> clazz) throws Throwable;
 
+    /**
+     * Deserialize e, reading the serialized object from a reader.
+     *
+     * @param <E>  the type parameter
+     * @param reader the reader
+     * @param clazz the clazz
+     * @return the e
+     */
+    public <E> E deserialize(Reader reader, Class<E> clazz) throws Throwable;
+
     /**
      * Deserialize list.
      *
@@ -42,4 +53,26 @@ public interface JsonSerializer {
      * @return the list
      */
     public <E> List<E> deserializeList(String serializedList, Class<E> clazz) throws Throwable;
+
+    /**
+     * Deserialize list, collecting the collection level annotations (like @odata.nextLink).
+     *
+     * @param <E>  the type parameter
+     * @param serializedList the serialized list
+     * @param clazz the clazz
+     * @param annotations map that receives the annotations found in the payload, may be null
+     * @return the list
+     */
+    public <E> List<E> deserializeList(String serializedList, Class<E> clazz, Map<String, String> annotations) throws Throwable;
+
+    /**
+     * Deserialize list, reading the serialized list from a reader.
+     *
+     * @param <E>  the type parameter
+     * @param reader the reader
+     * @param clazz the clazz
+     * @param annotations map that receives the annotations found in the payload, may be null
+     * @return the list
+     */
+    public <E> List<E> deserializeList(Reader reader, Class<E> clazz, Map<String, String> annotations) throws Throwable;
 }
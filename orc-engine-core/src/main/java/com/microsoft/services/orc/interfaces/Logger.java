@@ -11,4 +11,23 @@ public interface Logger {
      * @param logLevel the log level
      */
     public void log(String content, LogLevel logLevel);
+
+    /**
+     * Logs a message built from a format string, only if the log level is enabled.
+     * The message is not formatted when the level is disabled.
+     *
+     * @param logLevel the log level
+     * @param format the format, as used by {@link String#format(String, Object...)}
+     * @param args the arguments referenced by the format
+     */
+    public void log(LogLevel logLevel, String format, Object... args);
+
+    /**
+     * Checks if messages of the log level are logged. Use it to avoid building
+     * messages that would be discarded.
+     *
+     * @param logLevel the log level
+     * @return true if the log level is enabled
+     */
+    public boolean isEnabled(LogLevel logLevel);
 }
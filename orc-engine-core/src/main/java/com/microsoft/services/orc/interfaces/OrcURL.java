@@ -28,6 +28,14 @@ public interface OrcURL {
      */
     void prependPathComponent(String pathComponent);
 
+    /**
+     * Prepend a path component that is already percent-encoded. It is added to the url as is,
+     * and decoded in the path components, like the other path components.
+     *
+     * @param encodedPathComponent the encoded path component
+     */
+    void prependEncodedPathComponent(String encodedPathComponent);
+
     /**
      * Add query string parameter.
      *
@@ -10,6 +10,17 @@ public interface Request {
 
     public static final String MUST_STREAM_RESPONSE_CONTENT = "MUST_STREAM_RESPONSE_CONTENT";
 
+    /**
+     * The response content is not read into a byte array by the container, it is consumed
+     * from the response stream by the caller. Transports may still buffer the content.
+     */
+    public static final String DEFER_RESPONSE_CONTENT = "DEFER_RESPONSE_CONTENT";
+
+    /**
+     * The key the request is reported under to {@link RequestMetrics}. Set by the container.
+     */
+    public static final String METRICS_KEY = "METRICS_KEY";
+
     /**
      * Sets content.
      *
@@ -0,0 +1,62 @@
+package com.microsoft.services.orc.interfaces;
+
+/**
+ * Receives the measurements of the requests going through the container.
+ * Requests are identified by a key built from the url path components without the
+ * entity ids, like "Me/Messages/Attachments".
+ * Implementations are called from any thread and must not block.
+ */
+public interface RequestMetrics {
+
+    /**
+     * Called when a request is handed to the transport.
+     *
+     * @param key the request key
+     */
+    void requestStarted(String key);
+
+    /**
+     * Called once for every started request, when it completes.
+     *
+     * @param key the request key
+     * @param status the response status, or 0 if no response was received
+     * @param durationNanos the time from sending the request until its completion, in nanoseconds
+     */
+    void requestCompleted(String key, int status, long durationNanos);
+
+    /**
+     * Records the time spent in a phase of a request.
+     *
+     * @param key the request key
+     * @param phase the phase
+     * @param nanos the time spent, in nanoseconds
+     */
+    void recordTiming(String key, RequestPhase phase, long nanos);
+
+    /**
+     * Records the size of the request content.
+     *
+     * @param key the request key
+     * @param bytes the number of bytes
+     */
+    void recordRequestSize(String key, long bytes);
+
+    /**
+     * Records the size of the response content.
+     *
+     * @param key the request key
+     * @param bytes the number of bytes
+     */
+    void recordResponseSize(String key, long bytes);
+
+    /**
+     * Records a request or response content that was sent compressed. The sizes recorded with
+     * {@link #recordRequestSize(String, long)} and {@link #recordResponseSize(String, long)}
+     * are the encoded sizes.
+     *
+     * @param key the request key
+     * @param contentBytes the size of the content
+     * @param encodedBytes the size of the encoded content
+     */
+    void recordCompression(String key, long contentBytes, long encodedBytes);
+}
@@ -0,0 +1,28 @@
+package com.microsoft.services.orc.interfaces;
+
+/**
+ * The phases of a request reported to {@link RequestMetrics}.
+ */
+public enum RequestPhase {
+    /**
+     * Time spent waiting for a network thread or a per host slot.
+     */
+    QUEUE_WAIT,
+    /**
+     * Time spent opening the connection. Reported by the transport, when it can measure it.
+     */
+    CONNECT,
+    /**
+     * Time from sending the request until the response status and headers are available.
+     */
+    TIME_TO_FIRST_BYTE,
+    /**
+     * Time spent reading the response content into memory.
+     */
+    BODY_READ,
+    /**
+     * Time spent turning the response content into entities. Includes reading the content
+     * when it is deserialized straight from the response stream.
+     */
+    DESERIALIZATION
+}
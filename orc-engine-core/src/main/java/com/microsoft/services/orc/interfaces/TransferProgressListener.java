@@ -0,0 +1,15 @@
+package com.microsoft.services.orc.interfaces;
+
+/**
+ * The interface Transfer progress listener.
+ */
+public interface TransferProgressListener {
+    /**
+     * Called when a range of the content has been transferred, from the thread that completed
+     * the request. With concurrent ranges, calls can come from several threads.
+     *
+     * @param bytesTransferred the number of bytes transferred so far
+     * @param totalBytes the length of the content
+     */
+    public void onProgress(long bytesTransferred, long totalBytes);
+}